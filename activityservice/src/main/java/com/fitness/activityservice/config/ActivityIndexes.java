@@ -0,0 +1,51 @@
+package com.fitness.activityservice.config;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import com.fitness.activityservice.model.Activity;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// auto-index-creation is off, so the indexes the queries rely on are declared here
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityIndexes {
+
+    private final MongoTemplate mongoTemplate;
+    // the time-series collection has to exist before indexes are put on it
+    private final ActivityStorage activityStorage;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        // a user's history, newest first, for keyset pagination and streaming
+        mongoTemplate.indexOps(Activity.class).ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("startTime", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("userId_startTime_id"));
+        // the same ordering narrowed to one activity type, for filtered search
+        mongoTemplate.indexOps(Activity.class).ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("type", Sort.Direction.ASC)
+                .on("startTime", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("userId_type_startTime_id"));
+        // export walks a user's activities in _id order so it can resume after any id
+        mongoTemplate.indexOps(Activity.class).ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("userId_id"));
+        if (activityStorage.getMode() == ActivityStorageMode.TIMESERIES) {
+            // time-series collections have no _id index of their own
+            mongoTemplate.indexOps(Activity.class).ensureIndex(new Index().on("_id", Sort.Direction.ASC).named("id"));
+        }
+        log.info("Activity indexes ensured");
+    }
+}
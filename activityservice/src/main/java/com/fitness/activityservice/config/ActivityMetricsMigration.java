@@ -0,0 +1,112 @@
+package com.fitness.activityservice.config;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityMetrics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves the free-form metrics map of old activities into typed metrics and stamps them
+ * with the schema version. Only unversioned documents are touched, so it can be rerun.
+ * In time-series mode the documents are rewritten in place, which MongoDB only allows from
+ * 7.0 and which unpacks every affected bucket; run it before switching modes where possible.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityMetricsMigration {
+
+    private static final int MIN_TIMESERIES_UPDATE_VERSION = 7;
+
+    private final MongoTemplate mongoTemplate;
+    private final ActivityStorage activityStorage;
+
+    @Value("${activity.metrics.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+
+    @Value("${activity.metrics.max-extras:20}")
+    private int maxExtras;
+
+    @Value("${activity.metrics.migration.batch-size:500}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!migrateOnStartup) {
+            return;
+        }
+        if (activityStorage.getMode() == ActivityStorageMode.TIMESERIES && !supportsTimeSeriesUpdates()) {
+            // reads keep converting unversioned documents on the fly
+            log.warn("Skipping activity metrics migration: updating time-series collection {} needs MongoDB {}+",
+                    activityStorage.getCollectionName(), MIN_TIMESERIES_UPDATE_VERSION);
+            return;
+        }
+        Thread.ofVirtual().name("activity-metrics-migration").start(() -> {
+            try {
+                migrate();
+            } catch (RuntimeException e) {
+                log.error("Activity metrics migration failed, it resumes on next start", e);
+            }
+        });
+    }
+
+    boolean supportsTimeSeriesUpdates() {
+        String version = mongoTemplate.executeCommand(new Document("buildInfo", 1)).getString("version");
+        try {
+            return Integer.parseInt(version.substring(0, version.indexOf('.'))) >= MIN_TIMESERIES_UPDATE_VERSION;
+        } catch (RuntimeException e) {
+            log.warn("Unrecognised MongoDB version {}", version);
+            return false;
+        }
+    }
+
+    private void migrate() {
+        Query query = Query.query(Criteria.where("schemaVersion").exists(false)).cursorBatchSize(batchSize);
+        query.fields().include("legacyMetrics");
+
+        long migrated = 0;
+        int pending = 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Activity.class);
+        try (Stream<Activity> activities = mongoTemplate.stream(query, Activity.class)) {
+            Iterator<Activity> iterator = activities.iterator();
+            while (iterator.hasNext()) {
+                Activity activity = iterator.next();
+                Update update = new Update()
+                        .set("schemaVersion", Activity.SCHEMA_VERSION)
+                        .unset("legacyMetrics");
+                ActivityMetrics metrics = ActivityMetrics.fromMap(activity.getLegacyMetrics(), maxExtras, true);
+                if (metrics != null) {
+                    update.set("metrics", metrics);
+                }
+                bulk.updateOne(Query.query(Criteria.where("_id").is(activity.getId())), update);
+
+                if (++pending == batchSize) {
+                    bulk.execute();
+                    migrated += pending;
+                    pending = 0;
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Activity.class);
+                }
+            }
+        }
+        if (pending > 0) {
+            bulk.execute();
+            migrated += pending;
+        }
+        log.info("Migrated metrics of {} activities to schema version {}", migrated, Activity.SCHEMA_VERSION);
+    }
+}
@@ -0,0 +1,25 @@
+package com.fitness.activityservice.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import com.fitness.activityservice.service.ActivityRollupService;
+
+import lombok.RequiredArgsConstructor;
+
+// POST /actuator/activityrollups/{userId}, recomputes one user's rollups from their raw activities;
+// a full scan of the user's history, so it is kept off the routes the gateway exposes
+@Component
+@Endpoint(id = "activityrollups")
+@RequiredArgsConstructor
+public class ActivityRollupEndpoint {
+
+    private final ActivityRollupService activityRollupService;
+
+    @WriteOperation
+    public int rebuild(@Selector String userId) {
+        return activityRollupService.rebuild(userId);
+    }
+}
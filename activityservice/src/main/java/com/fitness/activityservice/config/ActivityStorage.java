@@ -0,0 +1,57 @@
+package com.fitness.activityservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.CollectionOptions.TimeSeriesOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides which collection activities live in. Activity resolves its collection name from
+ * this bean, so the repository and templates follow the configured mode without changes.
+ */
+@Component("activityStorage")
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityStorage {
+
+    public static final String STANDARD_COLLECTION = "activities";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${activity.storage.mode:standard}")
+    private ActivityStorageMode mode;
+
+    @Value("${activity.storage.timeseries.collection:activities_ts}")
+    private String timeSeriesCollection;
+
+    // how far apart a user's activities usually are, sets the bucket span Mongo uses
+    @Value("${activity.storage.timeseries.granularity:hours}")
+    private Granularity granularity;
+
+    @PostConstruct
+    public void init() {
+        if (mode != ActivityStorageMode.TIMESERIES || mongoTemplate.collectionExists(timeSeriesCollection)) {
+            return;
+        }
+        // must exist before the first insert, which would otherwise create a plain collection
+        mongoTemplate.createCollection(timeSeriesCollection, CollectionOptions.empty()
+                .timeSeries(TimeSeriesOptions.timeSeries("startTime")
+                        .metaField("userId")
+                        .granularity(granularity)));
+        log.info("Created time-series collection {} with granularity {}", timeSeriesCollection, granularity);
+    }
+
+    public ActivityStorageMode getMode() {
+        return mode;
+    }
+
+    public String getCollectionName() {
+        return mode == ActivityStorageMode.TIMESERIES ? timeSeriesCollection : STANDARD_COLLECTION;
+    }
+}
@@ -0,0 +1,58 @@
+package com.fitness.activityservice.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+// /actuator/activitystorage, sizes of both activity layouts for comparing them side by side
+@Component
+@Endpoint(id = "activitystorage")
+@RequiredArgsConstructor
+public class ActivityStorageEndpoint {
+
+    private static final List<String> STAT_FIELDS = List.of(
+            "count", "size", "avgObjSize", "storageSize", "totalIndexSize", "indexSizes", "timeseries");
+
+    private final MongoTemplate mongoTemplate;
+    private final ActivityStorage activityStorage;
+
+    @ReadOperation
+    public Map<String, Object> storage() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", activityStorage.getMode());
+        result.put("collection", activityStorage.getCollectionName());
+
+        Map<String, Object> collections = new LinkedHashMap<>();
+        for (String name : List.of(ActivityStorage.STANDARD_COLLECTION, activityStorage.getCollectionName())) {
+            if (!collections.containsKey(name) && mongoTemplate.collectionExists(name)) {
+                collections.put(name, storageStats(name));
+            }
+        }
+        result.put("collections", collections);
+        return result;
+    }
+
+    private Map<String, Object> storageStats(String collection) {
+        Document stats = mongoTemplate.getCollection(collection)
+                .aggregate(List.of(new Document("$collStats", new Document("storageStats", new Document()))))
+                .first();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        Document storage = stats != null ? stats.get("storageStats", Document.class) : null;
+        if (storage != null) {
+            for (String field : STAT_FIELDS) {
+                if (storage.containsKey(field)) {
+                    summary.put(field, storage.get(field));
+                }
+            }
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,153 @@
+package com.fitness.activityservice.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Copies activities from a previous collection into the current one in the background,
+ * in _id order. Progress is checkpointed in activity_migrations so a restart resumes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityStorageMigration {
+
+    private static final String CHECKPOINTS = "activity_migrations";
+
+    private final MongoTemplate mongoTemplate;
+    private final ActivityStorage activityStorage;
+
+    // e.g. "activities" when switching to time-series, empty to skip
+    @Value("${activity.storage.migrate-from:}")
+    private String sourceCollection;
+
+    @Value("${activity.storage.migration.batch-size:1000}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        String target = activityStorage.getCollectionName();
+        if (sourceCollection.isEmpty() || sourceCollection.equals(target)) {
+            return;
+        }
+        Thread.ofVirtual().name("activity-migration").start(() -> {
+            try {
+                migrate(sourceCollection, target);
+            } catch (RuntimeException e) {
+                log.error("Activity migration from {} to {} failed, it resumes on next start",
+                        sourceCollection, target, e);
+            }
+        });
+    }
+
+    void migrate(String sourceName, String targetName) {
+        String checkpointId = sourceName + "->" + targetName;
+        MongoCollection<Document> checkpoints = mongoTemplate.getCollection(CHECKPOINTS);
+        Document checkpoint = checkpoints.find(Filters.eq("_id", checkpointId)).first();
+        if (checkpoint != null && checkpoint.getBoolean("done", false)) {
+            return;
+        }
+
+        MongoCollection<Document> source = mongoTemplate.getCollection(sourceName);
+        MongoCollection<Document> target = mongoTemplate.getCollection(targetName);
+
+        Object lastId = checkpoint != null ? checkpoint.get("lastId") : null;
+        long copied = checkpoint != null ? checkpoint.getLong("copied") : 0;
+        long skipped = checkpoint != null ? checkpoint.get("skipped", 0L) : 0;
+        Bson filter = lastId == null ? new Document() : Filters.gt("_id", lastId);
+        log.info("Migrating activities from {} to {}, resuming after {}", sourceName, targetName, lastId);
+
+        List<Document> batch = new ArrayList<>(batchSize);
+        boolean firstBatch = true;
+        try (MongoCursor<Document> cursor = source.find(filter).sort(Sorts.ascending("_id"))
+                .batchSize(batchSize).iterator()) {
+            while (cursor.hasNext()) {
+                Document activity = cursor.next();
+                if (!fillStartTime(activity)) {
+                    skipped++;
+                    log.warn("Skipping activity {} without startTime, createdAt or an ObjectId", activity.get("_id"));
+                    continue;
+                }
+                batch.add(activity);
+                if (batch.size() == batchSize) {
+                    if (firstBatch) {
+                        removePartialCopy(target, batch);
+                        firstBatch = false;
+                    }
+                    copied += flush(target, checkpoints, checkpointId, batch, copied, skipped, false);
+                }
+            }
+        }
+        if (firstBatch) {
+            removePartialCopy(target, batch);
+        }
+        copied += flush(target, checkpoints, checkpointId, batch, copied, skipped, true);
+        if (skipped > 0) {
+            log.warn("Migrated {} activities from {} to {}, skipped {} without any time to file them under",
+                    copied, sourceName, targetName, skipped);
+        } else {
+            log.info("Migrated {} activities from {} to {}", copied, sourceName, targetName);
+        }
+    }
+
+    // the time field is mandatory in a time-series collection; like assignIdentity, an activity without
+    // one falls back to when it was created, which an ObjectId _id still records if createdAt is gone
+    private static boolean fillStartTime(Document activity) {
+        if (activity.get("startTime") != null) {
+            return true;
+        }
+        Object createdAt = activity.get("createdAt");
+        if (createdAt == null && activity.get("_id") instanceof ObjectId objectId) {
+            createdAt = objectId.getDate();
+        }
+        if (createdAt == null) {
+            return false;
+        }
+        activity.put("startTime", createdAt);
+        return true;
+    }
+
+    // the batch after the checkpoint may have been written before a crash, time-series has no
+    // unique _id to reject it; only those source ids are removed, live activities are left alone
+    private void removePartialCopy(MongoCollection<Document> target, List<Document> batch) {
+        if (!batch.isEmpty()) {
+            target.deleteMany(Filters.in("_id", batch.stream().map(activity -> activity.get("_id")).toList()));
+        }
+    }
+
+    private int flush(MongoCollection<Document> target, MongoCollection<Document> checkpoints,
+            String checkpointId, List<Document> batch, long copied, long skipped, boolean done) {
+        int size = batch.size();
+        Document checkpoint = new Document("_id", checkpointId).append("done", done);
+        if (size > 0) {
+            target.insertMany(batch, new InsertManyOptions().ordered(false));
+            checkpoint.append("lastId", batch.get(size - 1).get("_id"));
+        } else {
+            Document previous = checkpoints.find(Filters.eq("_id", checkpointId)).first();
+            checkpoint.append("lastId", previous != null ? previous.get("lastId") : null);
+        }
+        checkpoint.append("copied", copied + size).append("skipped", skipped);
+        checkpoints.replaceOne(Filters.eq("_id", checkpointId), checkpoint, new ReplaceOptions().upsert(true));
+        batch.clear();
+        return size;
+    }
+}
@@ -0,0 +1,8 @@
+package com.fitness.activityservice.config;
+
+public enum ActivityStorageMode {
+    // plain collection, one document per activity
+    STANDARD,
+    // Mongo time-series collection with startTime as time field and userId as meta field
+    TIMESERIES
+}
@@ -0,0 +1,83 @@
+package com.fitness.activityservice.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.IdempotencyRecord;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+@Configuration
+public class CacheConfig {
+
+    @Value("${user.validation.cache.max-size:100000}")
+    private long userCacheMaxSize;
+
+    @Value("${user.validation.cache.valid-ttl:1h}")
+    private Duration validUserTtl;
+
+    @Value("${user.validation.cache.invalid-ttl:30s}")
+    private Duration invalidUserTtl;
+
+    @Value("${activity.cache.max-size:50000}")
+    private long activityCacheMaxSize;
+
+    @Value("${activity.cache.ttl:10m}")
+    private Duration activityCacheTtl;
+
+    @Value("${activity.idempotency.cache.max-size:10000}")
+    private long idempotencyCacheMaxSize;
+
+    @Value("${activity.idempotency.cache.ttl:10m}")
+    private Duration idempotencyCacheTtl;
+
+    @Bean
+    public Cache<String, Boolean> validUserCache(MeterRegistry meterRegistry) {
+        Cache<String, Boolean> cache = Caffeine.newBuilder()
+                .maximumSize(userCacheMaxSize)
+                .expireAfterWrite(validUserTtl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "activity.valid-users");
+    }
+
+    // kept short, a missing user may be registered any moment
+    @Bean
+    public Cache<String, Boolean> invalidUserCache(MeterRegistry meterRegistry) {
+        Cache<String, Boolean> cache = Caffeine.newBuilder()
+                .maximumSize(userCacheMaxSize)
+                .expireAfterWrite(invalidUserTtl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "activity.invalid-users");
+    }
+
+    // activities by id, they don't change after creation so the ttl only bounds memory churn
+    @Bean
+    public Cache<String, Activity> activityCache(MeterRegistry meterRegistry) {
+        Cache<String, Activity> cache = Caffeine.newBuilder()
+                .maximumSize(activityCacheMaxSize)
+                .expireAfterWrite(activityCacheTtl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "activity.activities");
+    }
+
+    // recently completed Idempotency-Keys, spares the lookup for quick client retries
+    @Bean
+    public Cache<String, IdempotencyRecord> idempotencyCache(MeterRegistry meterRegistry) {
+        Cache<String, IdempotencyRecord> cache = Caffeine.newBuilder()
+                .maximumSize(idempotencyCacheMaxSize)
+                .expireAfterWrite(idempotencyCacheTtl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "activity.idempotency-keys");
+    }
+}
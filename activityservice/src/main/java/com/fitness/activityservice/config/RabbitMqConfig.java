@@ -1,5 +1,6 @@
 package com.fitness.activityservice.config;
 
+import org.springframework.amqp.core.AnonymousQueue;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.DirectExchange;
@@ -10,6 +11,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.fitness.eventcontract.ActivityEventMessageConverter;
+
 @Configuration
 public class RabbitMqConfig {
 
@@ -22,6 +25,9 @@ public class RabbitMqConfig {
     @Value("${rabbitmq.routing.key}")
     private String routingKey;
 
+    @Value("${rabbitmq.user-registered.routing-key}")
+    private String userRegisteredRoutingKey;
+
     @Bean
     public Queue activityQueue() {
         return new Queue(queueName, true);
@@ -37,8 +43,20 @@ public class RabbitMqConfig {
         return BindingBuilder.bind(activityQueue).to(activityExchange).with(routingKey);
     }
 
+    // one exclusive queue per instance, every instance keeps its own user cache warm
+    @Bean
+    public Queue userEventsQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding userEventsBinding(Queue userEventsQueue, DirectExchange activityExchange) {
+        return BindingBuilder.bind(userEventsQueue).to(activityExchange).with(userRegisteredRoutingKey);
+    }
+
+    // activity events go out as Smile, everything else stays JSON
     @Bean
     public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+        return new ActivityEventMessageConverter(new Jackson2JsonMessageConverter());
     }
 }
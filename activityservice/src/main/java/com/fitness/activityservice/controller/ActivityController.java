@@ -1,7 +1,17 @@
 package com.fitness.activityservice.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -9,30 +19,132 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import com.fitness.activityservice.dto.ActivityBatchRequest;
+import com.fitness.activityservice.dto.ActivityBatchResponse;
+import com.fitness.activityservice.dto.ActivityPage;
 import com.fitness.activityservice.dto.ActivityRequest;
 import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.dto.ActivityRollupResponse;
+import com.fitness.activityservice.dto.ActivitySamplesResponse;
+import com.fitness.activityservice.dto.ActivitySearchRequest;
+import com.fitness.activityservice.importer.ActivityImportService;
+import com.fitness.activityservice.importer.WorkoutFormat;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.RollupPeriod;
+import com.fitness.activityservice.service.ActivityExportService;
+import com.fitness.activityservice.service.ActivityRollupService;
+import com.fitness.activityservice.service.ActivitySampleService;
 import com.fitness.activityservice.service.ActivityService;
+import com.fitness.activityservice.service.ExportFormat;
 
-import lombok.AllArgsConstructor;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 
 @RestController
 @RequestMapping("/api/activities")
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class ActivityController {
 
     private final ActivityService activityService;
+    private final ActivityRollupService activityRollupService;
+    private final ActivityExportService activityExportService;
+    private final ActivityImportService activityImportService;
+    private final ActivitySampleService activitySampleService;
+
+    // streamed responses outlive the container's default async timeout, each sets its own
+    @Value("${activity.stream.timeout:30m}")
+    private Duration streamTimeout;
+
+    @Value("${activity.export.timeout:30m}")
+    private Duration exportTimeout;
 
     @PostMapping
-    public ResponseEntity<ActivityResponse> trackActivity(@RequestBody ActivityRequest request) {
+    public ResponseEntity<ActivityResponse> trackActivity(@RequestBody ActivityRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         // Logic to track activity
-        return ResponseEntity.ok(activityService.trackActivity(request));
+        return ResponseEntity.ok(activityService.trackActivity(request, idempotencyKey));
+    }
+
+    // the raw file is the request body (not multipart), so it is parsed as it arrives
+    @PostMapping(value = "/import", consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<ActivityResponse> importWorkout(@RequestHeader("X-User-Id") String userId,
+            @RequestParam WorkoutFormat format,
+            @RequestParam(required = false) ActivityType type,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            InputStream body) throws IOException {
+        return ResponseEntity.ok(activityImportService.importWorkout(userId, format, type, idempotencyKey, body));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<ActivityBatchResponse> trackActivities(@RequestBody ActivityBatchRequest request) {
+        return ResponseEntity.ok(activityService.trackActivities(request));
     }
 
     @GetMapping
-    public ResponseEntity<List<ActivityResponse>> getUserActivity(@RequestHeader("X-User-Id") String userId) {
-        return ResponseEntity.ok(activityService.getUserActivity(userId));
+    public ResponseEntity<List<ActivityResponse>> getUserActivity(@RequestHeader("X-User-Id") String userId,
+            @RequestParam(required = false) List<String> fields) {
+        return ResponseEntity.ok(activityService.getUserActivity(userId, fields));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> streamUserActivity(@RequestHeader("X-User-Id") String userId,
+            HttpServletResponse response) {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        return new WebAsyncTask<>(streamTimeout.toMillis(), () -> {
+            activityService.streamUserActivity(userId, response.getOutputStream());
+            return null;
+        });
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<ActivityPage> getUserActivityPage(@RequestHeader("X-User-Id") String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(activityService.getUserActivityPage(userId, cursor, limit));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<ActivityPage> searchActivities(@RequestHeader("X-User-Id") String userId,
+            ActivitySearchRequest search) {
+        return ResponseEntity.ok(activityService.searchActivities(userId, search));
+    }
+
+    // only available with activity.query.explain-enabled
+    @GetMapping("/search/explain")
+    public ResponseEntity<Map<String, Object>> explainSearch(@RequestHeader("X-User-Id") String userId,
+            ActivitySearchRequest search) {
+        return ResponseEntity.ok(activityService.explainSearch(userId, search));
+    }
+
+    // weekly or monthly totals per activity type, read from the rollups only
+    @GetMapping("/summary")
+    public ResponseEntity<List<ActivityRollupResponse>> getSummary(@RequestHeader("X-User-Id") String userId,
+            @RequestParam(defaultValue = "WEEK") RollupPeriod period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(activityRollupService.getSummary(userId, period, from, to));
+    }
+
+    // gzipped full history; to resume, pass the id of the last row received as ?after=
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportActivities(@RequestHeader("X-User-Id") String userId,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) String after,
+            HttpServletResponse response) {
+        response.setContentType("application/gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("activities." + format.getExtension() + ".gz")
+                .build()
+                .toString());
+        response.setHeader("X-Export-Content-Type", format.getContentType());
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            activityExportService.export(userId, format, after, response.getOutputStream());
+            return null;
+        });
     }
 
     @GetMapping("/{activityId}")
@@ -40,4 +152,10 @@ public class ActivityController {
         return ResponseEntity.ok(activityService.getActivityById(activityId));
     }
 
+    // full-resolution series, the activity itself only carries the preview
+    @GetMapping("/{activityId}/samples")
+    public ResponseEntity<ActivitySamplesResponse> getActivitySamples(@PathVariable String activityId) {
+        return ResponseEntity.ok(activitySampleService.getSamples(activityId));
+    }
+
 }
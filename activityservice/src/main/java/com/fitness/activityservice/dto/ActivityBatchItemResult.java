@@ -0,0 +1,20 @@
+package com.fitness.activityservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ActivityBatchItemResult {
+
+    // position of the item in the request
+    private int index;
+    private boolean success;
+    private ActivityResponse activity;
+    private String error;
+}
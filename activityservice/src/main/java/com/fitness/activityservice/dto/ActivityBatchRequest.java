@@ -0,0 +1,12 @@
+package com.fitness.activityservice.dto;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class ActivityBatchRequest {
+
+    private String userId;
+    private List<ActivityRequest> activities;
+}
@@ -0,0 +1,17 @@
+package com.fitness.activityservice.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityBatchResponse {
+
+    private int created;
+    private int failed;
+    private List<ActivityBatchItemResult> results;
+}
@@ -16,4 +16,6 @@ public class ActivityRequest {
     private Integer caloriesBurnt;
     private LocalDateTime startTime;
     private Map<String, Object> additionalMetrics;
+    // high-frequency series, stored apart from the activity
+    private ActivitySamplesRequest samples;
 }
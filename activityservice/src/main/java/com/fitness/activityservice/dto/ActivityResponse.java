@@ -1,13 +1,17 @@
 package com.fitness.activityservice.dto;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.SeriesPreview;
 
 import lombok.Data;
 
 @Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ActivityResponse {
 
     private String id;
@@ -17,6 +21,9 @@ public class ActivityResponse {
     private Integer caloriesBurnt;
     private LocalDateTime startTime;
     private Map<String, Object> additionalMetrics;
+    // full resolution at GET /api/activities/{id}/samples
+    private List<SeriesPreview> samplePreview;
+    private Integer sampleCount;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
@@ -0,0 +1,23 @@
+package com.fitness.activityservice.dto;
+
+import java.time.LocalDate;
+
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.RollupPeriod;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivityRollupResponse {
+
+    private RollupPeriod period;
+    private LocalDate periodStart;
+    private ActivityType type;
+    private long count;
+    private long totalDuration;
+    private long totalCaloriesBurnt;
+}
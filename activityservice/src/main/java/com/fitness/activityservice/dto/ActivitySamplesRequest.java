@@ -0,0 +1,15 @@
+package com.fitness.activityservice.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+
+@Data
+public class ActivitySamplesRequest {
+
+    // milliseconds since the first sample, one second apart when omitted
+    private List<Long> offsetsMillis;
+    // e.g. "heartRate" -> one value per offset
+    private Map<String, List<Double>> series;
+}
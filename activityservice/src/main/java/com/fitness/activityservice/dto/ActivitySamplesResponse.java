@@ -0,0 +1,17 @@
+package com.fitness.activityservice.dto;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivitySamplesResponse {
+
+    private String activityId;
+    private long[] offsetsMillis;
+    private Map<String, double[]> series;
+}
@@ -0,0 +1,31 @@
+package com.fitness.activityservice.dto;
+
+import java.time.LocalDateTime;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import com.fitness.activityservice.model.ActivityType;
+
+import lombok.Data;
+
+// query parameters of GET /api/activities/search, every filter is optional
+@Data
+public class ActivitySearchRequest {
+
+    private ActivityType type;
+
+    // startTime window, from inclusive and to exclusive
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    private Integer minCalories;
+    private Integer maxCalories;
+    private Integer minDuration;
+    private Integer maxDuration;
+
+    private String cursor;
+    private Integer limit;
+}
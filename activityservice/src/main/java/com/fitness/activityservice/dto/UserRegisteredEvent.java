@@ -0,0 +1,10 @@
+package com.fitness.activityservice.dto;
+
+import lombok.Data;
+
+@Data
+public class UserRegisteredEvent {
+
+    private String keycloakId;
+    private String email;
+}
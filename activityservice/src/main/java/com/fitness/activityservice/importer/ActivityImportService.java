@@ -0,0 +1,85 @@
+package com.fitness.activityservice.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.service.ActivityService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Turns an uploaded GPX or FIT recording into an activity. The file is parsed straight off
+ * the request stream and the result goes through the normal trackActivity path.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityImportService {
+
+    private final ActivityService activityService;
+    private final MeterRegistry meterRegistry;
+
+    private final GpxParser gpxParser = new GpxParser();
+    private final FitParser fitParser = new FitParser();
+
+    // heart-rate zones are fractions of this when the user's own maximum is unknown
+    @Value("${activity.import.max-heart-rate:190}")
+    private int maxHeartRate;
+
+    public ActivityResponse importWorkout(String userId, WorkoutFormat format, ActivityType type,
+            String idempotencyKey, InputStream in) throws IOException {
+        WorkoutStats stats = new WorkoutStats(maxHeartRate);
+        WorkoutFileParser parser = format == WorkoutFormat.FIT ? fitParser : gpxParser;
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            parser.parse(in, stats);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } finally {
+            sample.stop(meterRegistry.timer("activity.import.parse", "format", format.name()));
+        }
+        if (stats.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No timed samples in " + format + " file");
+        }
+
+        ActivityRequest request = new ActivityRequest();
+        request.setUserId(userId);
+        request.setType(type != null ? type : typeOf(stats.getSport()));
+        request.setDuration(stats.getDurationMinutes());
+        request.setCaloriesBurnt(stats.getTotalCalories());
+        request.setStartTime(LocalDateTime.ofInstant(stats.getStartTime(), ZoneId.systemDefault()));
+        request.setAdditionalMetrics(stats.toMetrics());
+        log.info("Imported {} workout for user {}: {} min, {} km", format, userId,
+                stats.getDurationMinutes(), String.format(Locale.ROOT, "%.2f", stats.getDistanceKm()));
+
+        return activityService.trackActivity(request, idempotencyKey);
+    }
+
+    private ActivityType typeOf(String sport) {
+        if (sport == null) {
+            return ActivityType.OTHER;
+        }
+        return switch (sport.toLowerCase(Locale.ROOT)) {
+            case "running", "run", "trail_running" -> ActivityType.RUNNING;
+            case "cycling", "biking", "ride" -> ActivityType.CYCLING;
+            case "swimming", "swim" -> ActivityType.SWIMMING;
+            case "walking", "walk", "hiking", "hike" -> ActivityType.WALKING;
+            default -> ActivityType.OTHER;
+        };
+    }
+}
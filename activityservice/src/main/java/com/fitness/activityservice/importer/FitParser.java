@@ -0,0 +1,237 @@
+package com.fitness.activityservice.importer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Minimal streaming reader for Garmin FIT activity files. Only record messages (samples) and
+ * the session message (sport, calories) are decoded, every other message is skipped by size.
+ */
+public class FitParser implements WorkoutFileParser {
+
+    private static final int MESG_SESSION = 18;
+    private static final int MESG_RECORD = 20;
+
+    private static final int FIELD_TIMESTAMP = 253;
+    private static final int RECORD_LAT = 0;
+    private static final int RECORD_LON = 1;
+    private static final int RECORD_ALTITUDE = 2;
+    private static final int RECORD_HEART_RATE = 3;
+    private static final int RECORD_CADENCE = 4;
+    private static final int RECORD_DISTANCE = 5;
+    private static final int RECORD_ENHANCED_ALTITUDE = 78;
+    private static final int SESSION_SPORT = 5;
+    private static final int SESSION_TOTAL_CALORIES = 11;
+
+    // FIT timestamps count seconds from 1989-12-31T00:00:00Z
+    private static final long FIT_EPOCH_SECONDS = 631_065_600L;
+    private static final double SEMICIRCLES_TO_DEGREES = 180.0 / (1L << 31);
+
+    private static final Map<Integer, String> SPORTS = Map.of(
+            1, "running",
+            2, "cycling",
+            5, "swimming",
+            11, "walking",
+            17, "hiking");
+
+    @Override
+    public void parse(InputStream in, WorkoutStats stats) throws IOException {
+        try {
+            new FitReader(new DataInputStream(new BufferedInputStream(in)), stats).read();
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Truncated FIT file", e);
+        }
+    }
+
+    private record FieldDefinition(int number, int size) {
+    }
+
+    private record MessageDefinition(int globalNumber, boolean bigEndian, FieldDefinition[] fields,
+            int developerBytes) {
+    }
+
+    // per-file state, a parser instance is shared between requests
+    private static final class FitReader {
+
+        private final DataInputStream in;
+        private final WorkoutStats stats;
+        private final MessageDefinition[] definitions = new MessageDefinition[16];
+        private final byte[] field = new byte[255];
+        private long position;
+        private long lastTimestamp;
+
+        FitReader(DataInputStream in, WorkoutStats stats) {
+            this.in = in;
+            this.stats = stats;
+        }
+
+        void read() throws IOException {
+            int headerSize = u8();
+            if (headerSize < 12) {
+                throw new IllegalArgumentException("Not a FIT file");
+            }
+            u8(); // protocol version
+            skip(2); // profile version
+            long dataSize = u32LittleEndian();
+            if (u8() != '.' || u8() != 'F' || u8() != 'I' || u8() != 'T') {
+                throw new IllegalArgumentException("Not a FIT file");
+            }
+            skip(headerSize - 12);
+
+            long end = position + dataSize;
+            while (position < end) {
+                int header = u8();
+                if ((header & 0x80) != 0) {
+                    // compressed timestamp header, 5 bits of offset from the last full timestamp
+                    int offset = header & 0x1F;
+                    long timestamp = (lastTimestamp & ~0x1FL) + offset;
+                    if (offset < (lastTimestamp & 0x1F)) {
+                        timestamp += 0x20;
+                    }
+                    lastTimestamp = timestamp;
+                    readData(definition((header >> 5) & 0x03), timestamp);
+                } else if ((header & 0x40) != 0) {
+                    readDefinition(header & 0x0F, (header & 0x20) != 0);
+                } else {
+                    readData(definition(header & 0x0F), -1);
+                }
+            }
+        }
+
+        private MessageDefinition definition(int localType) {
+            MessageDefinition definition = definitions[localType];
+            if (definition == null) {
+                throw new IllegalArgumentException("FIT data message without definition");
+            }
+            return definition;
+        }
+
+        private void readDefinition(int localType, boolean hasDeveloperFields) throws IOException {
+            u8(); // reserved
+            boolean bigEndian = u8() == 1;
+            int global = bigEndian ? (u8() << 8) | u8() : u8() | (u8() << 8);
+            FieldDefinition[] fields = new FieldDefinition[u8()];
+            for (int i = 0; i < fields.length; i++) {
+                int number = u8();
+                int size = u8();
+                u8(); // base type, sizes are all we need
+                fields[i] = new FieldDefinition(number, size);
+            }
+            int developerBytes = 0;
+            if (hasDeveloperFields) {
+                int count = u8();
+                for (int i = 0; i < count; i++) {
+                    u8();
+                    developerBytes += u8();
+                    u8();
+                }
+            }
+            definitions[localType] = new MessageDefinition(global, bigEndian, fields, developerBytes);
+        }
+
+        private void readData(MessageDefinition definition, long timestamp) throws IOException {
+            boolean record = definition.globalNumber() == MESG_RECORD;
+            boolean session = definition.globalNumber() == MESG_SESSION;
+
+            double lat = Double.NaN;
+            double lon = Double.NaN;
+            double altitude = Double.NaN;
+            Integer heartRate = null;
+            Integer cadence = null;
+            Double distance = null;
+
+            for (FieldDefinition fieldDefinition : definition.fields()) {
+                int size = fieldDefinition.size();
+                if (!record && !session && fieldDefinition.number() != FIELD_TIMESTAMP) {
+                    skip(size);
+                    continue;
+                }
+                readFully(size);
+                if (size > 4) {
+                    continue;
+                }
+                long value = unsigned(size, definition.bigEndian());
+                long invalid = (1L << (size * 8)) - 1;
+
+                if (fieldDefinition.number() == FIELD_TIMESTAMP && size == 4 && value != invalid) {
+                    timestamp = value;
+                    lastTimestamp = value;
+                } else if (record) {
+                    switch (fieldDefinition.number()) {
+                        case RECORD_LAT -> lat = semicircles(value, size);
+                        case RECORD_LON -> lon = semicircles(value, size);
+                        case RECORD_ALTITUDE, RECORD_ENHANCED_ALTITUDE -> {
+                            if (value != invalid) {
+                                altitude = value / 5.0 - 500;
+                            }
+                        }
+                        case RECORD_HEART_RATE -> heartRate = value != invalid ? (int) value : null;
+                        case RECORD_CADENCE -> cadence = value != invalid ? (int) value : null;
+                        case RECORD_DISTANCE -> distance = value != invalid ? value / 100.0 : null;
+                        default -> {
+                        }
+                    }
+                } else if (session) {
+                    switch (fieldDefinition.number()) {
+                        case SESSION_SPORT -> stats.setSport(SPORTS.get((int) value));
+                        case SESSION_TOTAL_CALORIES -> {
+                            if (value != invalid) {
+                                stats.setTotalCalories((int) value);
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                }
+            }
+            skip(definition.developerBytes());
+
+            if (record) {
+                Instant time = timestamp >= 0 ? Instant.ofEpochSecond(FIT_EPOCH_SECONDS + timestamp) : null;
+                stats.addSample(time, lat, lon, altitude, heartRate, cadence, distance);
+            }
+        }
+
+        private double semicircles(long value, int size) {
+            if (size != 4 || value == 0x7FFFFFFFL) {
+                return Double.NaN;
+            }
+            return (int) value * SEMICIRCLES_TO_DEGREES;
+        }
+
+        private long unsigned(int size, boolean bigEndian) {
+            long value = 0;
+            for (int i = 0; i < size; i++) {
+                int b = field[bigEndian ? i : size - 1 - i] & 0xFF;
+                value = (value << 8) | b;
+            }
+            return value;
+        }
+
+        private int u8() throws IOException {
+            position++;
+            return in.readUnsignedByte();
+        }
+
+        private long u32LittleEndian() throws IOException {
+            return u8() | ((long) u8() << 8) | ((long) u8() << 16) | ((long) u8() << 24);
+        }
+
+        private void readFully(int size) throws IOException {
+            in.readFully(field, 0, size);
+            position += size;
+        }
+
+        private void skip(int size) throws IOException {
+            for (int remaining = size; remaining > 0; remaining -= field.length) {
+                in.readFully(field, 0, Math.min(remaining, field.length));
+            }
+            position += size;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.fitness.activityservice.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * StAX reader for GPX 1.1 tracks, including heart rate and cadence from the Garmin
+ * TrackPointExtension. DTDs and external entities are disabled.
+ */
+public class GpxParser implements WorkoutFileParser {
+
+    // longest text accepted in a leaf element, numbers and timestamps are far shorter
+    static final int MAX_TEXT_LENGTH = 256;
+
+    private final XMLInputFactory factory;
+
+    public GpxParser() {
+        factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        // text arrives in chunks so elementText can refuse an oversized node before buffering it
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    }
+
+    @Override
+    public void parse(InputStream in, WorkoutStats stats) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(in);
+            boolean inTrack = false;
+            boolean inPoint = false;
+            double lat = Double.NaN;
+            double lon = Double.NaN;
+            double elevation = Double.NaN;
+            Instant time = null;
+            Integer heartRate = null;
+            Integer cadence = null;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "trk" -> inTrack = true;
+                        case "type" -> {
+                            if (inTrack && !inPoint && stats.getSport() == null) {
+                                stats.setSport(elementText(reader).trim());
+                            }
+                        }
+                        case "trkpt" -> {
+                            inPoint = true;
+                            lat = parseDouble(reader.getAttributeValue(null, "lat"));
+                            lon = parseDouble(reader.getAttributeValue(null, "lon"));
+                            elevation = Double.NaN;
+                            time = null;
+                            heartRate = null;
+                            cadence = null;
+                        }
+                        case "ele" -> {
+                            if (inPoint) {
+                                elevation = parseDouble(elementText(reader));
+                            }
+                        }
+                        case "time" -> {
+                            if (inPoint) {
+                                time = Instant.parse(elementText(reader).trim());
+                            }
+                        }
+                        case "hr" -> {
+                            if (inPoint) {
+                                heartRate = parseInt(elementText(reader));
+                            }
+                        }
+                        case "cad" -> {
+                            if (inPoint) {
+                                cadence = parseInt(elementText(reader));
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "trkpt" -> {
+                            stats.addSample(time, lat, lon, elevation, heartRate, cadence, null);
+                            inPoint = false;
+                        }
+                        case "trk" -> inTrack = false;
+                        default -> {
+                        }
+                    }
+                }
+            }
+        } catch (XMLStreamException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid GPX file: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // nothing left to release
+                }
+            }
+        }
+    }
+
+    // getElementText() without the unbounded buffer, fails past MAX_TEXT_LENGTH characters
+    private static String elementText(XMLStreamReader reader) throws XMLStreamException {
+        String element = reader.getLocalName();
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                    if (text.length() + reader.getTextLength() > MAX_TEXT_LENGTH) {
+                        throw new IllegalArgumentException("GPX element <" + element + "> text is too long");
+                    }
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+                case XMLStreamConstants.COMMENT, XMLStreamConstants.PROCESSING_INSTRUCTION -> {
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    return text.toString();
+                }
+                default -> throw new XMLStreamException("Unexpected content in <" + element + ">",
+                        reader.getLocation());
+            }
+        }
+    }
+
+    private static double parseDouble(String value) {
+        if (value == null || value.isBlank()) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in GPX file: " + value);
+        }
+    }
+
+    private static Integer parseInt(String value) {
+        double number = parseDouble(value);
+        return Double.isNaN(number) ? null : (int) Math.round(number);
+    }
+}
@@ -0,0 +1,13 @@
+package com.fitness.activityservice.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a workout recording sample by sample into WorkoutStats. Implementations must not
+ * buffer the file; malformed input is reported as IllegalArgumentException.
+ */
+public interface WorkoutFileParser {
+
+    void parse(InputStream in, WorkoutStats stats) throws IOException;
+}
@@ -0,0 +1,6 @@
+package com.fitness.activityservice.importer;
+
+public enum WorkoutFormat {
+    GPX,
+    FIT
+}
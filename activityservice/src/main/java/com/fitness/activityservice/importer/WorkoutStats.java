@@ -0,0 +1,209 @@
+package com.fitness.activityservice.importer;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fitness.activityservice.model.ActivityMetrics;
+
+/**
+ * Summary of a workout file, folded one sample at a time so nothing but these
+ * running totals is kept no matter how long the recording is.
+ */
+public class WorkoutStats {
+
+    // samples further apart than this are a pause, not movement
+    private static final long MAX_GAP_MILLIS = 10_000;
+    // slower than this between two positions counts as standing still
+    private static final double MIN_MOVING_SPEED = 0.5;
+    // GPS altitude jitters, climbs are only counted once they exceed this
+    private static final double ELEVATION_THRESHOLD_M = 2.0;
+    private static final double EARTH_RADIUS_M = 6_371_000;
+    // lower bounds of the five heart-rate zones, as a fraction of max heart rate
+    private static final double[] ZONE_FLOORS = { 0.5, 0.6, 0.7, 0.8, 0.9 };
+
+    private final int maxHeartRate;
+
+    private Instant firstTime;
+    private Instant lastTime;
+    private long movingMillis;
+
+    private double distanceM;
+    private Double recordedDistanceM;
+    private double lastLat = Double.NaN;
+    private double lastLon = Double.NaN;
+
+    private double elevationGainM;
+    private double elevationBase = Double.NaN;
+
+    private long heartRateSum;
+    private long heartRateSamples;
+    private int heartRateMax;
+    private int lastHeartRate;
+    private final long[] zoneMillis = new long[ZONE_FLOORS.length];
+
+    private long cadenceSum;
+    private long cadenceSamples;
+
+    private Integer totalCalories;
+    private String sport;
+
+    public WorkoutStats(int maxHeartRate) {
+        this.maxHeartRate = maxHeartRate;
+    }
+
+    /**
+     * Adds one sample. Any value may be missing (null or NaN); distanceM is the device's own
+     * cumulative distance and is preferred over distance computed from positions.
+     */
+    public void addSample(Instant time, double lat, double lon, double elevation, Integer heartRate,
+            Integer cadence, Double distanceM) {
+        double segmentM = 0;
+        if (!Double.isNaN(lat) && !Double.isNaN(lon)) {
+            if (!Double.isNaN(lastLat)) {
+                segmentM = haversine(lastLat, lastLon, lat, lon);
+                this.distanceM += segmentM;
+            }
+            lastLat = lat;
+            lastLon = lon;
+        }
+        if (distanceM != null) {
+            segmentM = recordedDistanceM != null ? Math.max(0, distanceM - recordedDistanceM) : 0;
+            recordedDistanceM = distanceM;
+        }
+
+        if (time != null) {
+            if (firstTime == null) {
+                firstTime = time;
+            }
+            if (lastTime != null) {
+                long gap = time.toEpochMilli() - lastTime.toEpochMilli();
+                if (gap > 0 && gap <= MAX_GAP_MILLIS) {
+                    // without any position or distance, e.g. heart rate only, every short gap is moving
+                    boolean tracksPosition = !Double.isNaN(lastLat) || recordedDistanceM != null;
+                    if (!tracksPosition || segmentM / (gap / 1000.0) >= MIN_MOVING_SPEED) {
+                        movingMillis += gap;
+                    }
+                    if (lastHeartRate > 0) {
+                        int zone = zoneOf(lastHeartRate);
+                        if (zone >= 0) {
+                            zoneMillis[zone] += gap;
+                        }
+                    }
+                }
+            }
+            if (lastTime == null || time.isAfter(lastTime)) {
+                lastTime = time;
+            }
+        }
+
+        if (!Double.isNaN(elevation)) {
+            if (Double.isNaN(elevationBase) || elevation < elevationBase) {
+                elevationBase = elevation;
+            } else if (elevation - elevationBase >= ELEVATION_THRESHOLD_M) {
+                elevationGainM += elevation - elevationBase;
+                elevationBase = elevation;
+            }
+        }
+
+        if (heartRate != null && heartRate > 0) {
+            heartRateSum += heartRate;
+            heartRateSamples++;
+            heartRateMax = Math.max(heartRateMax, heartRate);
+            lastHeartRate = heartRate;
+        }
+        if (cadence != null && cadence > 0) {
+            cadenceSum += cadence;
+            cadenceSamples++;
+        }
+    }
+
+    public void setTotalCalories(Integer totalCalories) {
+        this.totalCalories = totalCalories;
+    }
+
+    public void setSport(String sport) {
+        this.sport = sport;
+    }
+
+    public String getSport() {
+        return sport;
+    }
+
+    public Integer getTotalCalories() {
+        return totalCalories;
+    }
+
+    public Instant getStartTime() {
+        return firstTime;
+    }
+
+    public boolean isEmpty() {
+        return firstTime == null;
+    }
+
+    public int getDurationMinutes() {
+        if (firstTime == null) {
+            return 0;
+        }
+        return (int) Math.round((lastTime.toEpochMilli() - firstTime.toEpochMilli()) / 60_000.0);
+    }
+
+    public double getDistanceKm() {
+        return (recordedDistanceM != null ? recordedDistanceM : distanceM) / 1000.0;
+    }
+
+    // in the shape of ActivityRequest.additionalMetrics, see ActivityMetrics
+    public Map<String, Object> toMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        double distanceKm = getDistanceKm();
+        if (distanceKm > 0) {
+            metrics.put(ActivityMetrics.DISTANCE_KM, round(distanceKm, 3));
+        }
+        if (distanceKm >= 0.1 && movingMillis > 0) {
+            double pace = movingMillis / 1000.0 / distanceKm;
+            if (pace <= 3_600) {
+                metrics.put(ActivityMetrics.PACE_SECONDS_PER_KM, round(pace, 1));
+            }
+        }
+        if (elevationGainM > 0) {
+            metrics.put(ActivityMetrics.ELEVATION_GAIN_M, round(elevationGainM, 1));
+        }
+        if (heartRateSamples > 0) {
+            metrics.put(ActivityMetrics.AVG_HEART_RATE, (int) Math.round((double) heartRateSum / heartRateSamples));
+            metrics.put(ActivityMetrics.MAX_HEART_RATE, heartRateMax);
+            for (int zone = 0; zone < zoneMillis.length; zone++) {
+                metrics.put("hrZone" + (zone + 1) + "Seconds", zoneMillis[zone] / 1000);
+            }
+        }
+        if (cadenceSamples > 0) {
+            metrics.put(ActivityMetrics.AVG_CADENCE, (int) Math.round((double) cadenceSum / cadenceSamples));
+        }
+        metrics.put("movingTimeSeconds", movingMillis / 1000);
+        return metrics;
+    }
+
+    private int zoneOf(int heartRate) {
+        double fraction = (double) heartRate / maxHeartRate;
+        for (int zone = ZONE_FLOORS.length - 1; zone >= 0; zone--) {
+            if (fraction >= ZONE_FLOORS[zone]) {
+                return zone;
+            }
+        }
+        return -1;
+    }
+
+    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.sqrt(a));
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+}
@@ -1,6 +1,7 @@
 package com.fitness.activityservice.model;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.data.annotation.CreatedDate;
@@ -14,12 +15,16 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-@Document(collection = "activities")
+// "activities" or the time-series collection, see ActivityStorage
+@Document(collection = "#{@activityStorage.collectionName}")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Activity {
+    // bumped when the stored shape changes, documents without it predate typed metrics
+    public static final int SCHEMA_VERSION = 1;
+
     @Id
     private String id;
     private String userId;
@@ -28,8 +33,22 @@ public class Activity {
     private Integer caloriesBurnt;
     private LocalDateTime startTime;
 
+    @Field("m")
+    private ActivityMetrics metrics;
+
+    // free-form map of documents not yet migrated, see ActivityMetricsMigration
     @Field("metrics")
-    private Map<String, Object> additionalMetrics;
+    private Map<String, Object> legacyMetrics;
+
+    @Field("v")
+    private Integer schemaVersion;
+
+    // LTTB preview of the samples in activity_samples, see ActivitySampleService
+    @Field("sp")
+    private List<SeriesPreview> samplePreview;
+
+    @Field("sn")
+    private Integer sampleCount;
 
     @CreatedDate
     private LocalDateTime createdAt;
@@ -0,0 +1,185 @@
+package com.fitness.activityservice.model;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Typed measurements of an activity, stored under short field names. A null field was not
+ * recorded and is not written. Keys that aren't modelled go to a small bag of scalar extras.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ActivityMetrics {
+
+    public static final String DISTANCE_KM = "distanceKm";
+    public static final String AVG_HEART_RATE = "avgHeartRate";
+    public static final String MAX_HEART_RATE = "maxHeartRate";
+    public static final String PACE_SECONDS_PER_KM = "paceSecondsPerKm";
+    public static final String ELEVATION_GAIN_M = "elevationGainM";
+    public static final String AVG_CADENCE = "avgCadence";
+
+    private static final int MAX_EXTRA_KEY_LENGTH = 64;
+    private static final int MAX_EXTRA_STRING_LENGTH = 256;
+
+    // names clients have been sending in additionalMetrics, lower-cased
+    private static final Map<String, String> ALIASES = Map.ofEntries(
+            Map.entry("distancekm", DISTANCE_KM),
+            Map.entry("distance", DISTANCE_KM),
+            Map.entry("avgheartrate", AVG_HEART_RATE),
+            Map.entry("averageheartrate", AVG_HEART_RATE),
+            Map.entry("heartrate", AVG_HEART_RATE),
+            Map.entry("maxheartrate", MAX_HEART_RATE),
+            Map.entry("pacesecondsperkm", PACE_SECONDS_PER_KM),
+            Map.entry("pace", PACE_SECONDS_PER_KM),
+            Map.entry("elevationgainm", ELEVATION_GAIN_M),
+            Map.entry("elevationgain", ELEVATION_GAIN_M),
+            Map.entry("elevation", ELEVATION_GAIN_M),
+            Map.entry("avgcadence", AVG_CADENCE),
+            Map.entry("cadence", AVG_CADENCE));
+
+    @Field("d")
+    private Double distanceKm;
+
+    @Field("hr")
+    private Integer avgHeartRate;
+
+    @Field("hrx")
+    private Integer maxHeartRate;
+
+    @Field("p")
+    private Double paceSecondsPerKm;
+
+    @Field("e")
+    private Double elevationGainM;
+
+    @Field("c")
+    private Integer avgCadence;
+
+    @Field("x")
+    private Map<String, Object> extras;
+
+    /**
+     * Parses the free-form map clients send. Strict parsing rejects values that are out of range
+     * or not numbers and more extras than allowed; lenient parsing, used for old documents,
+     * keeps such values as extras and drops extras past the limit instead.
+     */
+    public static ActivityMetrics fromMap(Map<String, Object> raw, int maxExtras, boolean lenient) {
+        if (raw == null || raw.isEmpty()) {
+            return null;
+        }
+        ActivityMetrics metrics = new ActivityMetrics();
+        Map<String, Object> extras = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Object> entry : raw.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (key == null || value == null) {
+                continue;
+            }
+            String field = ALIASES.get(key.toLowerCase(Locale.ROOT));
+            try {
+                if (field != null) {
+                    metrics.set(field, value);
+                    continue;
+                }
+                checkExtra(key, value);
+            } catch (IllegalArgumentException e) {
+                if (!lenient) {
+                    throw e;
+                }
+                if (!isScalar(value)) {
+                    continue;
+                }
+            }
+            if (extras.size() >= maxExtras) {
+                if (!lenient) {
+                    throw new IllegalArgumentException("At most " + maxExtras + " additional metrics are allowed");
+                }
+                continue;
+            }
+            extras.put(key, value);
+        }
+
+        metrics.setExtras(extras.isEmpty() ? null : extras);
+        return metrics;
+    }
+
+    // the same shape clients send, with canonical names for the typed fields
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        putIfPresent(map, DISTANCE_KM, distanceKm);
+        putIfPresent(map, AVG_HEART_RATE, avgHeartRate);
+        putIfPresent(map, MAX_HEART_RATE, maxHeartRate);
+        putIfPresent(map, PACE_SECONDS_PER_KM, paceSecondsPerKm);
+        putIfPresent(map, ELEVATION_GAIN_M, elevationGainM);
+        putIfPresent(map, AVG_CADENCE, avgCadence);
+        if (extras != null) {
+            extras.forEach(map::putIfAbsent);
+        }
+        return map;
+    }
+
+    private void set(String field, Object value) {
+        switch (field) {
+            case DISTANCE_KM -> distanceKm = number(field, value, 0, 1_000);
+            case AVG_HEART_RATE -> avgHeartRate = (int) Math.round(number(field, value, 20, 250));
+            case MAX_HEART_RATE -> maxHeartRate = (int) Math.round(number(field, value, 20, 250));
+            case PACE_SECONDS_PER_KM -> paceSecondsPerKm = number(field, value, 0, 3_600);
+            case ELEVATION_GAIN_M -> elevationGainM = number(field, value, 0, 20_000);
+            case AVG_CADENCE -> avgCadence = (int) Math.round(number(field, value, 0, 300));
+            default -> throw new IllegalStateException("Unknown metric " + field);
+        }
+    }
+
+    private static double number(String field, Object value, double min, double max) {
+        double number;
+        if (value instanceof Number n) {
+            number = n.doubleValue();
+        } else if (value instanceof String s) {
+            try {
+                number = Double.parseDouble(s.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(field + " must be a number: " + s);
+            }
+        } else {
+            throw new IllegalArgumentException(field + " must be a number");
+        }
+        if (Double.isNaN(number) || number < min || number > max) {
+            throw new IllegalArgumentException(field + " must be between " + min + " and " + max + ": " + number);
+        }
+        return number;
+    }
+
+    private static void checkExtra(String key, Object value) {
+        if (key.length() > MAX_EXTRA_KEY_LENGTH) {
+            throw new IllegalArgumentException("Metric name too long: " + key.substring(0, MAX_EXTRA_KEY_LENGTH));
+        }
+        if (!isScalar(value)) {
+            throw new IllegalArgumentException("Metric " + key + " must be a number, string or boolean");
+        }
+        if (value instanceof String s && s.length() > MAX_EXTRA_STRING_LENGTH) {
+            throw new IllegalArgumentException("Metric " + key + " is longer than " + MAX_EXTRA_STRING_LENGTH);
+        }
+    }
+
+    private static boolean isScalar(Object value) {
+        return value instanceof Number || value instanceof Boolean
+                || (value instanceof String s && s.length() <= MAX_EXTRA_STRING_LENGTH);
+    }
+
+    private static void putIfPresent(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+}
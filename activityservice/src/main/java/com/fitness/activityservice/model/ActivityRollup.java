@@ -0,0 +1,40 @@
+package com.fitness.activityservice.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totals for one user, activity type and week or month. The id is derived from those
+ * so that concurrent upserts of the same bucket land on the same document.
+ */
+@Document(collection = "activity_rollups")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ActivityRollup {
+    @Id
+    private String id;
+    private String userId;
+    private RollupPeriod period;
+    private LocalDate periodStart;
+    private ActivityType type;
+    private long count;
+    private long totalDuration;
+    private long totalCaloriesBurnt;
+
+    // last write by record() or rebuild, lets a rebuild tell buckets created while it ran from stale ones
+    private LocalDateTime updatedAt;
+
+    public static String idOf(String userId, RollupPeriod period, LocalDate periodStart, ActivityType type) {
+        return userId + ":" + period + ":" + periodStart + ":" + type;
+    }
+}
@@ -0,0 +1,51 @@
+package com.fitness.activityservice.model;
+
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Full-resolution samples of an activity, kept apart from the activity so that normal reads
+ * never load them. Every series is delta/varint coded, see SampleCodec.
+ */
+@Document(collection = "activity_samples")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ActivitySamples {
+    // same as the activity id
+    @Id
+    private String id;
+    private String userId;
+    private int count;
+
+    // sample times in milliseconds since the first one
+    @Field("t")
+    private byte[] offsets;
+
+    @Field("s")
+    private List<EncodedSeries> series;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class EncodedSeries {
+        @Field("n")
+        private String name;
+
+        // values were multiplied by this and rounded before coding
+        @Field("k")
+        private int scale;
+
+        @Field("d")
+        private byte[] data;
+    }
+}
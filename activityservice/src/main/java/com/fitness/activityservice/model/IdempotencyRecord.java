@@ -0,0 +1,36 @@
+package com.fitness.activityservice.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// the activity created for a client's Idempotency-Key, removed by a TTL index
+@Document(collection = "activity_idempotency")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class IdempotencyRecord {
+    // "<userId>:<key>", keys are only unique per user
+    @Id
+    private String id;
+    private String activityId;
+    // SHA-256 of the request body, null on records written before it was stored
+    private String requestHash;
+    // null on records written before it was stored, those were completed
+    private Status status;
+    // when the key was reserved or last taken over
+    private Date createdAt;
+
+    public enum Status {
+        // reserved, the activity may not be written yet
+        PENDING,
+        COMPLETED
+    }
+}
@@ -0,0 +1,30 @@
+package com.fitness.activityservice.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An activity waiting to be published to RabbitMQ. Shares its id with the activity.
+ */
+@Document(collection = "activity_outbox")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OutboxEvent {
+    @Id
+    private String id;
+    private Activity payload;
+    private LocalDateTime createdAt;
+
+    // relay instance currently publishing this event, and until when it holds it
+    private String claimedBy;
+    private LocalDateTime claimedUntil;
+}
@@ -0,0 +1,17 @@
+package com.fitness.activityservice.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+public enum RollupPeriod {
+    WEEK,
+    MONTH;
+
+    // first day of the bucket the date falls into, weeks start on Monday
+    public LocalDate bucketStart(LocalDate date) {
+        return switch (this) {
+            case WEEK -> date.with(DayOfWeek.MONDAY);
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+}
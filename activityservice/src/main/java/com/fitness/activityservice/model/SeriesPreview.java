@@ -0,0 +1,23 @@
+package com.fitness.activityservice.model;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a downsampled series kept on the activity itself, small enough for lists and prompts
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeriesPreview {
+    @Field("n")
+    private String name;
+
+    // milliseconds since the first sample
+    @Field("t")
+    private long[] offsets;
+
+    @Field("y")
+    private double[] values;
+}
@@ -0,0 +1,52 @@
+package com.fitness.activityservice.samples;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Delta + zigzag + varint coding of integer series. Neighbouring samples of a recording
+ * differ by little, so most deltas fit in a single byte.
+ */
+public final class SampleCodec {
+
+    private SampleCodec() {
+    }
+
+    public static byte[] encode(long[] values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(values.length + 8);
+        long previous = 0;
+        for (long value : values) {
+            long delta = value - previous;
+            previous = value;
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                out.write((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            out.write((int) zigzag);
+        }
+        return out.toByteArray();
+    }
+
+    public static long[] decode(byte[] data, int count) {
+        long[] values = new long[count];
+        long previous = 0;
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position >= data.length || shift > 63) {
+                    throw new IllegalArgumentException("Corrupt sample data");
+                }
+                b = data[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            long delta = (zigzag >>> 1) ^ -(zigzag & 1);
+            previous += delta;
+            values[i] = previous;
+        }
+        return values;
+    }
+}
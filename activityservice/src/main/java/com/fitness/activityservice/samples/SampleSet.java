@@ -0,0 +1,14 @@
+package com.fitness.activityservice.samples;
+
+import java.util.Map;
+
+/**
+ * Decoded samples of one activity: shared time offsets and any number of named series
+ * of the same length.
+ */
+public record SampleSet(long[] offsets, Map<String, double[]> series) {
+
+    public int size() {
+        return offsets.length;
+    }
+}
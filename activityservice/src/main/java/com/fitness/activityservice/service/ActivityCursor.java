@@ -0,0 +1,58 @@
+package com.fitness.activityservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fitness.activityservice.model.Activity;
+
+/**
+ * Position in a user's history ordered by (startTime desc, _id desc). Encoded as an opaque
+ * base64 token so clients cannot depend on its layout.
+ */
+record ActivityCursor(LocalDateTime startTime, String id) {
+
+    private static final String SEPARATOR = "|";
+
+    static ActivityCursor after(Activity activity) {
+        return new ActivityCursor(activity.getStartTime(), activity.getId());
+    }
+
+    static ActivityCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            String startTime = raw.substring(0, separator);
+            String id = raw.substring(separator + 1);
+            if (id.isEmpty()) {
+                throw new IllegalArgumentException("missing id");
+            }
+            return new ActivityCursor(startTime.isEmpty() ? null : LocalDateTime.parse(startTime), id);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    String encode() {
+        String raw = (startTime == null ? "" : startTime.toString()) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // everything that sorts after this position; activities without a startTime sort last
+    Criteria nextPage() {
+        if (startTime == null) {
+            return new Criteria().andOperator(
+                    Criteria.where("startTime").is(null),
+                    Criteria.where("_id").lt(id));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("startTime").lt(startTime),
+                new Criteria().andOperator(Criteria.where("startTime").is(startTime), Criteria.where("_id").lt(id)),
+                Criteria.where("startTime").is(null));
+    }
+}
@@ -0,0 +1,142 @@
+package com.fitness.activityservice.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gzipped full-history export, written row by row from a Mongo cursor in _id order.
+ * Each row starts with the activity id; passing the last one received as "after"
+ * resumes an interrupted export.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityExportService {
+
+    private static final String CSV_HEADER = "id,userId,type,startTime,duration,caloriesBurnt,"
+            + ActivityMetrics.DISTANCE_KM + "," + ActivityMetrics.AVG_HEART_RATE + ","
+            + ActivityMetrics.MAX_HEART_RATE + "," + ActivityMetrics.PACE_SECONDS_PER_KM + ","
+            + ActivityMetrics.ELEVATION_GAIN_M + "," + ActivityMetrics.AVG_CADENCE + ",createdAt\n";
+
+    private final MongoTemplate mongoTemplate;
+    private final ActivityService activityService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${activity.export.cursor-batch-size:1000}")
+    private int cursorBatchSize;
+
+    // rows between flushes, keeps bytes moving through the gateway on long exports
+    @Value("${activity.export.flush-every:1000}")
+    private int flushEvery;
+
+    public void export(String userId, ExportFormat format, String after, OutputStream out) throws IOException {
+        Query query = Query.query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(cursorBatchSize);
+        if (after != null && !after.isEmpty()) {
+            query.addCriteria(Criteria.where("_id").gt(after));
+        }
+
+        ObjectWriter json = objectMapper.writerFor(ActivityResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long rows = 0;
+        // syncFlush so a flush pushes out everything compressed so far
+        Writer writer = new OutputStreamWriter(new GZIPOutputStream(out, 8192, true), StandardCharsets.UTF_8);
+        try (Stream<Activity> activities = mongoTemplate.stream(query, Activity.class)) {
+            if (format == ExportFormat.CSV && (after == null || after.isEmpty())) {
+                writer.write(CSV_HEADER);
+            }
+            Iterator<Activity> iterator = activities.iterator();
+            while (iterator.hasNext()) {
+                Activity activity = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    writeCsv(writer, activity);
+                } else {
+                    writer.write(json.writeValueAsString(activityService.mapToResponse(activity)));
+                    writer.write('\n');
+                }
+                if (++rows % flushEvery == 0) {
+                    writer.flush();
+                }
+            }
+            // the gzip trailer goes out only here; an export that fails part way ends without it,
+            // so the client sees a truncated archive instead of a shorter one that looks complete
+            writer.close();
+        } finally {
+            meterRegistry.counter("activity.export.rows", "format", format.name()).increment(rows);
+        }
+        log.info("Exported {} activities for user {} as {}", rows, userId, format);
+    }
+
+    private void writeCsv(Writer writer, Activity activity) throws IOException {
+        ActivityMetrics metrics = activity.getMetrics() != null
+                ? activity.getMetrics()
+                // not migrated yet, only the typed columns matter here
+                : ActivityMetrics.fromMap(activity.getLegacyMetrics(), 0, true);
+        if (metrics == null) {
+            metrics = new ActivityMetrics();
+        }
+        writer.write(csv(activity.getId()));
+        writer.write(',');
+        writer.write(csv(activity.getUserId()));
+        writer.write(',');
+        writer.write(csv(activity.getType()));
+        writer.write(',');
+        writer.write(csv(activity.getStartTime()));
+        writer.write(',');
+        writer.write(csv(activity.getDuration()));
+        writer.write(',');
+        writer.write(csv(activity.getCaloriesBurnt()));
+        writer.write(',');
+        writer.write(csv(metrics.getDistanceKm()));
+        writer.write(',');
+        writer.write(csv(metrics.getAvgHeartRate()));
+        writer.write(',');
+        writer.write(csv(metrics.getMaxHeartRate()));
+        writer.write(',');
+        writer.write(csv(metrics.getPaceSecondsPerKm()));
+        writer.write(',');
+        writer.write(csv(metrics.getElevationGainM()));
+        writer.write(',');
+        writer.write(csv(metrics.getAvgCadence()));
+        writer.write(',');
+        writer.write(csv(activity.getCreatedAt()));
+        writer.write('\n');
+    }
+
+    private String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            return text;
+        }
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,52 @@
+package com.fitness.activityservice.service;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.OutboxEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write side of the outbox. Events are staged before their activity is written, so a
+ * saved activity always has an event; the relay drops events whose activity never landed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityOutbox {
+
+    private final MongoTemplate mongoTemplate;
+
+    public void stage(Activity activity) {
+        mongoTemplate.insert(toEvent(activity));
+    }
+
+    public void stageAll(List<Activity> activities) {
+        mongoTemplate.insert(activities.stream().map(this::toEvent).toList(), OutboxEvent.class);
+    }
+
+    // best effort, the relay cleans up anything left behind
+    public void discard(Collection<String> activityIds) {
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(activityIds)), OutboxEvent.class);
+        } catch (RuntimeException e) {
+            log.warn("Failed to discard {} outbox events", activityIds.size(), e);
+        }
+    }
+
+    private OutboxEvent toEvent(Activity activity) {
+        return OutboxEvent.builder()
+                .id(activity.getId())
+                .payload(activity)
+                .createdAt(activity.getCreatedAt())
+                .build();
+    }
+}
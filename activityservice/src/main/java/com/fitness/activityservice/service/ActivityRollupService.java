@@ -0,0 +1,235 @@
+package com.fitness.activityservice.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators.Timezone;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fitness.activityservice.dto.ActivityRollupResponse;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityRollup;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.RollupPeriod;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Weekly and monthly totals per user and activity type, kept up to date with $inc upserts
+ * as activities are written. rebuild recomputes them from the raw activities.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityRollupService {
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private Counter failedUpdates;
+
+    @PostConstruct
+    public void init() {
+        mongoTemplate.indexOps(ActivityRollup.class).ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("period", Sort.Direction.ASC)
+                .on("periodStart", Sort.Direction.DESC));
+        failedUpdates = meterRegistry.counter("activity.rollup.failed-updates");
+    }
+
+    public void record(Activity activity) {
+        recordAll(List.of(activity));
+    }
+
+    // increments are summed per bucket first, so a batch costs one bulk write
+    public void recordAll(Collection<Activity> activities) {
+        Map<String, ActivityRollup> deltas = new HashMap<>();
+        for (Activity activity : activities) {
+            addTo(deltas, activity);
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityRollup.class);
+            for (ActivityRollup delta : deltas.values()) {
+                bulk.upsert(Query.query(Criteria.where("_id").is(delta.getId())), new Update()
+                        .setOnInsert("userId", delta.getUserId())
+                        .setOnInsert("period", delta.getPeriod())
+                        .setOnInsert("periodStart", delta.getPeriodStart())
+                        .setOnInsert("type", delta.getType())
+                        .inc("count", delta.getCount())
+                        .inc("totalDuration", delta.getTotalDuration())
+                        .inc("totalCaloriesBurnt", delta.getTotalCaloriesBurnt())
+                        .set("updatedAt", now));
+            }
+            bulk.execute();
+        } catch (RuntimeException e) {
+            // the activities are already saved, a rebuild brings the totals back in line
+            failedUpdates.increment(activities.size());
+            log.error("Failed to update rollups for {} activities", activities.size(), e);
+        }
+    }
+
+    public List<ActivityRollupResponse> getSummary(String userId, RollupPeriod period, LocalDate from, LocalDate to) {
+        Criteria periodStart = Criteria.where("periodStart");
+        if (from != null) {
+            periodStart.gte(period.bucketStart(from));
+        }
+        if (to != null) {
+            periodStart.lte(to);
+        }
+
+        Query query = Query.query(Criteria.where("userId").is(userId).and("period").is(period))
+                .with(Sort.by(Sort.Direction.DESC, "periodStart"));
+        if (from != null || to != null) {
+            query.addCriteria(periodStart);
+        }
+
+        return mongoTemplate.find(query, ActivityRollup.class).stream()
+                .map(rollup -> new ActivityRollupResponse(rollup.getPeriod(), rollup.getPeriodStart(),
+                        rollup.getType(), rollup.getCount(), rollup.getTotalDuration(),
+                        rollup.getTotalCaloriesBurnt()))
+                .toList();
+    }
+
+    // recomputes each bucket from a per-day aggregation and overwrites it in place, so $inc
+    // upserts from record() keep landing on the same documents while this runs; an activity
+    // recorded between the aggregation and the write of its bucket is restored by the next rebuild
+    public int rebuild(String userId) {
+        LocalDateTime started = LocalDateTime.now();
+        Aggregation perDay = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("userId").is(userId).and("type").ne(null)),
+                Aggregation.project("type", "duration", "caloriesBurnt")
+                        .and(DateOperators.dateOf(ConditionalOperators.ifNull("startTime").thenValueOf("createdAt"))
+                                .withTimezone(Timezone.valueOf(ZoneId.systemDefault().getId()))
+                                .toString("%Y-%m-%d"))
+                        .as("day"),
+                Aggregation.group("type", "day")
+                        .count().as("count")
+                        .sum("duration").as("totalDuration")
+                        .sum("caloriesBurnt").as("totalCaloriesBurnt"));
+
+        Map<String, ActivityRollup> totals = new HashMap<>();
+        for (Document day : mongoTemplate.aggregate(perDay, Activity.class, Document.class).getMappedResults()) {
+            Document key = day.get("_id", Document.class);
+            if (key.getString("day") == null) {
+                continue;
+            }
+            add(totals, userId, ActivityType.valueOf(key.getString("type")), LocalDate.parse(key.getString("day")),
+                    day.get("count", Number.class).longValue(),
+                    day.get("totalDuration", Number.class).longValue(),
+                    day.get("totalCaloriesBurnt", Number.class).longValue());
+        }
+
+        if (!totals.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityRollup.class);
+            for (ActivityRollup rollup : totals.values()) {
+                bulk.upsert(Query.query(Criteria.where("_id").is(rollup.getId())), new Update()
+                        .set("userId", rollup.getUserId())
+                        .set("period", rollup.getPeriod())
+                        .set("periodStart", rollup.getPeriodStart())
+                        .set("type", rollup.getType())
+                        .set("count", rollup.getCount())
+                        .set("totalDuration", rollup.getTotalDuration())
+                        .set("totalCaloriesBurnt", rollup.getTotalCaloriesBurnt())
+                        .set("updatedAt", started));
+            }
+            bulk.execute();
+        }
+
+        // buckets no activity maps to any more, unless record() created them after we started
+        mongoTemplate.remove(Query.query(new Criteria().andOperator(
+                Criteria.where("userId").is(userId),
+                Criteria.where("_id").nin(totals.keySet()),
+                new Criteria().orOperator(
+                        Criteria.where("updatedAt").lt(started),
+                        Criteria.where("updatedAt").is(null)))),
+                ActivityRollup.class);
+        return totals.size();
+    }
+
+    // distinct users come from an aggregation cursor, a distinct command is capped at 16MB
+    @Scheduled(cron = "${activity.rollup.rebuild-cron:-}")
+    public void rebuildAll() {
+        Aggregation users = Aggregation.newAggregation(
+                Aggregation.sort(Sort.Direction.ASC, "userId"),
+                Aggregation.group("userId"))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).cursorBatchSize(1000).build());
+
+        int rebuilt = 0;
+        try (Stream<Document> userIds = mongoTemplate.aggregateStream(users, Activity.class, Document.class)) {
+            Iterator<Document> iterator = userIds.iterator();
+            while (iterator.hasNext()) {
+                String userId = iterator.next().getString("_id");
+                if (userId == null) {
+                    continue;
+                }
+                try {
+                    rebuild(userId);
+                    rebuilt++;
+                } catch (RuntimeException e) {
+                    log.error("Failed to rebuild rollups for user {}", userId, e);
+                }
+            }
+        }
+        log.info("Rebuilt activity rollups for {} users", rebuilt);
+    }
+
+    private void addTo(Map<String, ActivityRollup> rollups, Activity activity) {
+        if (activity.getUserId() == null || activity.getType() == null) {
+            return;
+        }
+        LocalDateTime time = activity.getStartTime() != null ? activity.getStartTime() : activity.getCreatedAt();
+        if (time == null) {
+            return;
+        }
+        add(rollups, activity.getUserId(), activity.getType(), time.toLocalDate(), 1,
+                activity.getDuration() != null ? activity.getDuration() : 0,
+                activity.getCaloriesBurnt() != null ? activity.getCaloriesBurnt() : 0);
+    }
+
+    private void add(Map<String, ActivityRollup> rollups, String userId, ActivityType type, LocalDate date,
+            long count, long duration, long caloriesBurnt) {
+        for (RollupPeriod period : RollupPeriod.values()) {
+            LocalDate periodStart = period.bucketStart(date);
+            String id = ActivityRollup.idOf(userId, period, periodStart, type);
+            ActivityRollup rollup = rollups.computeIfAbsent(id, _ -> ActivityRollup.builder()
+                    .id(id)
+                    .userId(userId)
+                    .period(period)
+                    .periodStart(periodStart)
+                    .type(type)
+                    .build());
+            rollup.setCount(rollup.getCount() + count);
+            rollup.setTotalDuration(rollup.getTotalDuration() + duration);
+            rollup.setTotalCaloriesBurnt(rollup.getTotalCaloriesBurnt() + caloriesBurnt);
+        }
+    }
+}
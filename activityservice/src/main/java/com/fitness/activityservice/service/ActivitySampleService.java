@@ -0,0 +1,250 @@
+package com.fitness.activityservice.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.ActivitySamplesRequest;
+import com.fitness.activityservice.dto.ActivitySamplesResponse;
+import com.fitness.activityservice.model.ActivitySamples;
+import com.fitness.activityservice.model.ActivitySamples.EncodedSeries;
+import com.fitness.activityservice.model.SeriesPreview;
+import com.fitness.activityservice.samples.Lttb;
+import com.fitness.activityservice.samples.SampleCodec;
+import com.fitness.activityservice.samples.SampleSet;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * High-frequency samples of an activity. The full series are stored compactly in
+ * activity_samples and only read by GET /{id}/samples; the activity keeps an LTTB preview.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActivitySampleService {
+
+    // the smallest of these that represents every value exactly is used for a series
+    private static final int[] SCALES = { 1, 10, 100, 1_000, 1_000_000 };
+    private static final long DEFAULT_INTERVAL_MILLIS = 1_000;
+    // keeps value * scale well inside a long
+    private static final double MAX_ABS_VALUE = 1e9;
+    // worst case of the varint coding, see SampleCodec
+    private static final int MAX_BYTES_PER_VALUE = 10;
+    // the coded samples share one document, this leaves room under MongoDB's 16MB for the rest
+    private static final long MAX_ENCODED_BYTES = 15L << 20;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${activity.samples.max-count:200000}")
+    private int maxCount;
+
+    @Value("${activity.samples.max-series:8}")
+    private int maxSeries;
+
+    @Value("${activity.samples.preview-points:100}")
+    private int previewPoints;
+
+    /**
+     * Collects the request's samples and any numeric arrays in additionalMetrics, which are
+     * taken as one value per second. Returns null when there are none.
+     */
+    public SampleSet extract(ActivityRequest request) {
+        Map<String, List<? extends Number>> raw = new LinkedHashMap<>();
+        ActivitySamplesRequest samples = request.getSamples();
+        if (samples != null && samples.getSeries() != null) {
+            samples.getSeries().forEach((name, values) -> {
+                if (values == null) {
+                    throw new IllegalArgumentException("Series " + name + " has no samples");
+                }
+                raw.put(name, values);
+            });
+        }
+        if (request.getAdditionalMetrics() != null) {
+            request.getAdditionalMetrics().forEach((name, value) -> {
+                if (isSeries(value)) {
+                    raw.putIfAbsent(name, numbers(value));
+                }
+            });
+        }
+        if (raw.isEmpty()) {
+            return null;
+        }
+        if (raw.size() > maxSeries) {
+            throw new IllegalArgumentException("At most " + maxSeries + " sample series allowed: " + raw.size());
+        }
+
+        List<Long> requestOffsets = samples != null ? samples.getOffsetsMillis() : null;
+        int count = requestOffsets != null ? requestOffsets.size() : raw.values().iterator().next().size();
+        if (count == 0 || count > maxCount) {
+            throw new IllegalArgumentException("Sample count must be between 1 and " + maxCount + ": " + count);
+        }
+        // offsets plus every series, as if no delta fitted in less than the longest varint
+        if ((long) (raw.size() + 1) * count * MAX_BYTES_PER_VALUE > MAX_ENCODED_BYTES) {
+            throw new IllegalArgumentException(
+                    "Too many samples: " + raw.size() + " series of " + count + " samples");
+        }
+
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            if (requestOffsets != null && requestOffsets.get(i) == null) {
+                throw new IllegalArgumentException("Sample offset " + i + " is missing");
+            }
+            offsets[i] = requestOffsets != null ? requestOffsets.get(i) : i * DEFAULT_INTERVAL_MILLIS;
+            if (offsets[i] == Long.MIN_VALUE || (i > 0 && offsets[i] < offsets[i - 1])) {
+                throw new IllegalArgumentException("Sample offsets must be increasing");
+            }
+        }
+
+        Map<String, double[]> series = new LinkedHashMap<>();
+        raw.forEach((name, values) -> {
+            if (values.size() != count) {
+                throw new IllegalArgumentException(
+                        "Series " + name + " has " + values.size() + " samples, expected " + count);
+            }
+            series.put(name, fill(name, values));
+        });
+        return new SampleSet(offsets, series);
+    }
+
+    // additionalMetrics without the arrays that extract turned into series
+    public Map<String, Object> scalarMetrics(Map<String, Object> metrics) {
+        if (metrics == null || metrics.values().stream().noneMatch(this::isSeries)) {
+            return metrics;
+        }
+        Map<String, Object> scalars = new LinkedHashMap<>();
+        metrics.forEach((name, value) -> {
+            if (!isSeries(value)) {
+                scalars.put(name, value);
+            }
+        });
+        return scalars;
+    }
+
+    public List<SeriesPreview> preview(SampleSet samples) {
+        List<SeriesPreview> previews = new ArrayList<>(samples.series().size());
+        samples.series().forEach((name, values) -> {
+            int[] keep = Lttb.downsample(samples.offsets(), values, previewPoints);
+            long[] offsets = new long[keep.length];
+            double[] kept = new double[keep.length];
+            for (int i = 0; i < keep.length; i++) {
+                offsets[i] = samples.offsets()[keep[i]];
+                kept[i] = values[keep[i]];
+            }
+            previews.add(new SeriesPreview(name, offsets, kept));
+        });
+        return previews;
+    }
+
+    public ActivitySamples encode(String activityId, String userId, SampleSet samples) {
+        List<EncodedSeries> series = new ArrayList<>(samples.series().size());
+        samples.series().forEach((name, values) -> {
+            int scale = scaleOf(values);
+            long[] quantized = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                quantized[i] = Math.round(values[i] * scale);
+            }
+            series.add(new EncodedSeries(name, scale, SampleCodec.encode(quantized)));
+        });
+        return ActivitySamples.builder()
+                .id(activityId)
+                .userId(userId)
+                .count(samples.size())
+                .offsets(SampleCodec.encode(samples.offsets()))
+                .series(series)
+                .build();
+    }
+
+    public void saveAll(Collection<ActivitySamples> samples) {
+        if (!samples.isEmpty()) {
+            mongoTemplate.insert(samples, ActivitySamples.class);
+        }
+    }
+
+    // best effort, samples without an activity are never read
+    public void discard(Collection<String> activityIds) {
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(activityIds)), ActivitySamples.class);
+        } catch (RuntimeException e) {
+            log.warn("Failed to discard samples of {} activities", activityIds.size(), e);
+        }
+    }
+
+    public ActivitySamplesResponse getSamples(String activityId) {
+        ActivitySamples stored = mongoTemplate.findById(activityId, ActivitySamples.class);
+        if (stored == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No samples for activity " + activityId);
+        }
+        Map<String, double[]> series = new LinkedHashMap<>();
+        for (EncodedSeries encoded : stored.getSeries()) {
+            long[] quantized = SampleCodec.decode(encoded.getData(), stored.getCount());
+            double[] values = new double[quantized.length];
+            for (int i = 0; i < quantized.length; i++) {
+                values[i] = (double) quantized[i] / encoded.getScale();
+            }
+            series.put(encoded.getName(), values);
+        }
+        return new ActivitySamplesResponse(activityId, SampleCodec.decode(stored.getOffsets(), stored.getCount()),
+                series);
+    }
+
+    private boolean isSeries(Object value) {
+        return value instanceof List<?> list && list.size() > 1
+                && list.stream().allMatch(element -> element == null || element instanceof Number);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<? extends Number> numbers(Object value) {
+        return (List<? extends Number>) value;
+    }
+
+    // sensor dropouts (nulls) repeat the previous value
+    private double[] fill(String name, List<? extends Number> values) {
+        double[] filled = new double[values.size()];
+        Double last = values.stream().filter(v -> v != null).findFirst().map(Number::doubleValue).orElse(null);
+        if (last == null) {
+            throw new IllegalArgumentException("Series " + name + " has no values");
+        }
+        for (int i = 0; i < filled.length; i++) {
+            Number value = values.get(i);
+            if (value != null) {
+                last = value.doubleValue();
+                if (!Double.isFinite(last) || Math.abs(last) > MAX_ABS_VALUE) {
+                    throw new IllegalArgumentException("Series " + name + " contains " + last);
+                }
+            }
+            filled[i] = last;
+        }
+        return filled;
+    }
+
+    private int scaleOf(double[] values) {
+        for (int scale : SCALES) {
+            boolean exact = true;
+            for (double value : values) {
+                double scaled = value * scale;
+                if (Math.abs(scaled - Math.rint(scaled)) > 1e-6) {
+                    exact = false;
+                    break;
+                }
+            }
+            if (exact) {
+                return scale;
+            }
+        }
+        // beyond micro units the rounding is accepted
+        return SCALES[SCALES.length - 1];
+    }
+}
@@ -1,17 +1,47 @@
 package com.fitness.activityservice.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.springframework.amqp.AmqpException;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fitness.activityservice.ActivityRepository;
+import com.fitness.activityservice.dto.ActivityBatchItemResult;
+import com.fitness.activityservice.dto.ActivityBatchRequest;
+import com.fitness.activityservice.dto.ActivityBatchResponse;
+import com.fitness.activityservice.dto.ActivityPage;
 import com.fitness.activityservice.dto.ActivityRequest;
 import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.dto.ActivitySearchRequest;
 import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityMetrics;
+import com.fitness.activityservice.model.ActivitySamples;
+import com.fitness.activityservice.model.IdempotencyRecord;
+import com.fitness.activityservice.samples.SampleSet;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.mongodb.bulk.BulkWriteError;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,44 +51,236 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class ActivityService {
 
+    // fields a client may ask for with ?fields=, named as in ActivityResponse
+    private static final Set<String> SELECTABLE_FIELDS = Set.of(
+            "id", "userId", "type", "duration", "caloriesBurnt", "startTime",
+            "additionalMetrics", "samplePreview", "sampleCount", "createdAt", "updatedAt");
+
+    // newest first; _id breaks ties so keyset pages never skip or repeat an activity
+    private static final Sort HISTORY_ORDER = Sort.by(Sort.Direction.DESC, "startTime", "_id");
+
     private final ActivityRepository activityRepository;
+    private final MongoTemplate mongoTemplate;
     private final UserValidationService userValidationService;
-    private final RabbitTemplate rabbitTemplate;
+    private final ActivityOutbox activityOutbox;
+    private final ObjectMapper objectMapper;
+    private final QueryPlanInspector queryPlanInspector;
+    private final ActivityRollupService activityRollupService;
+    private final Cache<String, Activity> activityCache;
+    private final IdempotencyService idempotencyService;
+    private final ActivitySampleService activitySampleService;
+
+    @Value("${activity.metrics.max-extras:20}")
+    private int maxExtraMetrics;
+
+    @Value("${activity.batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${activity.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${activity.page.max-size:500}")
+    private int maxPageSize;
 
-    @Value("${rabbitmq.exchange.name}")
-    private String exchange;
+    @Value("${activity.stream.cursor-batch-size:500}")
+    private int streamCursorBatchSize;
 
-    @Value("${rabbitmq.routing.key}")
-    private String routingKey;
+    // exposes query plans over HTTP, keep it off outside of debugging
+    @Value("${activity.query.explain-enabled:false}")
+    private boolean explainEnabled;
 
     public ActivityResponse trackActivity(ActivityRequest request) {
-        boolean isValidUser = userValidationService.validateUser(request.getUserId());
+        return trackActivity(request, null);
+    }
+
+    // a brand new user may still be registering; waiting for them only parks the request's virtual thread
+    public ActivityResponse trackActivity(ActivityRequest request, String idempotencyKey) {
+        boolean isValidUser = userValidationService.validateUserWithGrace(request.getUserId());
         if (!isValidUser) {
             throw new RuntimeException("Invalid user ID: " + request.getUserId());
         }
+        return trackValidated(request, idempotencyKey);
+    }
 
-        Activity activity = Activity.builder()
-                .userId(request.getUserId())
-                .type(request.getType())
-                .duration(request.getDuration())
-                .caloriesBurnt(request.getCaloriesBurnt())
-                .startTime(request.getStartTime())
-                .additionalMetrics(request.getAdditionalMetrics())
-                .build();
+    // a retry carrying the same Idempotency-Key gets the original activity back, nothing is written again
+    private ActivityResponse trackValidated(ActivityRequest request, String idempotencyKey) {
+        String scopedKey = null;
+        String requestHash = null;
+        IdempotencyRecord abandoned = null;
+        if (idempotencyKey != null) {
+            scopedKey = idempotencyService.scope(request.getUserId(), idempotencyKey);
+            requestHash = idempotencyService.hash(request);
+            IdempotencyRecord existing = idempotencyService.find(scopedKey);
+            if (existing != null) {
+                idempotencyService.checkSameRequest(existing, requestHash);
+                // the request that reserved the key died before writing its activity
+                if (!idempotencyService.isAbandoned(existing) || findActivity(existing.getActivityId()) != null) {
+                    return replay(existing, requestHash);
+                }
+                abandoned = existing;
+            }
+        }
 
-        Activity savedActivity = activityRepository.save(activity);
+        Activity activity;
+        SampleSet samples;
+        try {
+            samples = activitySampleService.extract(request);
+            activity = toActivity(request, request.getUserId(), samples);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        assignIdentity(activity, LocalDateTime.now());
 
-        // publish to rabbitmq exchange for AI processing
+        if (scopedKey != null && !(abandoned != null
+                ? idempotencyService.takeOver(abandoned, activity.getId())
+                : idempotencyService.reserve(scopedKey, activity.getId(), requestHash))) {
+            // a concurrent retry with the same key got there first
+            return replay(idempotencyService.find(scopedKey), requestHash);
+        }
+
+        // samples and the event go in first, neither is visible until the activity itself is
+        Activity savedActivity;
         try {
-            rabbitTemplate.convertAndSend(exchange, routingKey, savedActivity);
-        } catch (AmqpException e) {
-            log.error("Failed to publish activity to RabbitMQ", e);
+            if (samples != null) {
+                activitySampleService.saveAll(List.of(
+                        activitySampleService.encode(activity.getId(), activity.getUserId(), samples)));
+            }
+            activityOutbox.stage(activity);
+            savedActivity = activityRepository.insert(activity);
+        } catch (RuntimeException e) {
+            activityOutbox.discard(List.of(activity.getId()));
+            if (samples != null) {
+                activitySampleService.discard(List.of(activity.getId()));
+            }
+            if (scopedKey != null) {
+                idempotencyService.release(scopedKey);
+            }
+            throw e;
+        }
+        activityRollupService.record(savedActivity);
+        activityCache.put(savedActivity.getId(), savedActivity);
+        if (scopedKey != null) {
+            idempotencyService.complete(scopedKey, savedActivity.getId(), requestHash);
         }
 
         return mapToResponse(savedActivity);
     }
 
-    private ActivityResponse mapToResponse(Activity activity) {
+    // one user validation, one outbox write and one unordered bulk insert for the whole batch
+    public ActivityBatchResponse trackActivities(ActivityBatchRequest request) {
+        List<ActivityRequest> items = request.getActivities();
+        if (items == null || items.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No activities in batch");
+        }
+        if (items.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Batch too large: " + items.size() + " > " + maxBatchSize);
+        }
+
+        boolean isValidUser = userValidationService.validateUser(request.getUserId());
+        if (!isValidUser) {
+            throw new RuntimeException("Invalid user ID: " + request.getUserId());
+        }
+
+        ActivityBatchItemResult[] results = new ActivityBatchItemResult[items.size()];
+        List<Activity> toInsert = new ArrayList<>(items.size());
+        List<ActivitySamples> samplesToInsert = new ArrayList<>();
+        // position in toInsert -> position in the request
+        List<Integer> insertIndexes = new ArrayList<>(items.size());
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < items.size(); i++) {
+            ActivityRequest item = items.get(i);
+            if (item == null || item.getType() == null) {
+                results[i] = new ActivityBatchItemResult(i, false, null, "Activity type is required");
+                continue;
+            }
+            Activity activity;
+            SampleSet samples;
+            try {
+                samples = activitySampleService.extract(item);
+                activity = toActivity(item, request.getUserId(), samples);
+            } catch (IllegalArgumentException e) {
+                results[i] = new ActivityBatchItemResult(i, false, null, e.getMessage());
+                continue;
+            }
+            assignIdentity(activity, now);
+            if (samples != null) {
+                samplesToInsert.add(activitySampleService.encode(activity.getId(), activity.getUserId(), samples));
+            }
+            toInsert.add(activity);
+            insertIndexes.add(i);
+        }
+
+        Map<Integer, String> writeErrors = new HashMap<>();
+        if (!toInsert.isEmpty()) {
+            activitySampleService.saveAll(samplesToInsert);
+            activityOutbox.stageAll(toInsert);
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Activity.class)
+                        .insert(toInsert)
+                        .execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    writeErrors.put(error.getIndex(), error.getMessage());
+                }
+            }
+        }
+
+        List<Activity> inserted = new ArrayList<>(toInsert.size());
+        for (int j = 0; j < toInsert.size(); j++) {
+            int index = insertIndexes.get(j);
+            String error = writeErrors.get(j);
+            if (error != null) {
+                results[index] = new ActivityBatchItemResult(index, false, null, error);
+            } else {
+                inserted.add(toInsert.get(j));
+                results[index] = new ActivityBatchItemResult(index, true, mapToResponse(toInsert.get(j)), null);
+            }
+        }
+
+        if (!writeErrors.isEmpty()) {
+            List<String> failedIds = writeErrors.keySet().stream().map(j -> toInsert.get(j).getId()).toList();
+            activityOutbox.discard(failedIds);
+            activitySampleService.discard(failedIds);
+        }
+        activityRollupService.recordAll(inserted);
+        for (Activity activity : inserted) {
+            activityCache.put(activity.getId(), activity);
+        }
+
+        return new ActivityBatchResponse(inserted.size(), items.size() - inserted.size(), List.of(results));
+    }
+
+    // ids and timestamps are assigned up front so the outbox event and the activity agree
+    private void assignIdentity(Activity activity, LocalDateTime now) {
+        activity.setId(new ObjectId().toHexString());
+        activity.setCreatedAt(now);
+        activity.setUpdatedAt(now);
+        // startTime is the time field of the time-series layout and cannot be missing there
+        if (activity.getStartTime() == null) {
+            activity.setStartTime(now);
+        }
+    }
+
+    // throws IllegalArgumentException when the metrics don't validate
+    private Activity toActivity(ActivityRequest request, String userId, SampleSet samples) {
+        ActivityMetrics metrics = ActivityMetrics.fromMap(
+                activitySampleService.scalarMetrics(request.getAdditionalMetrics()), maxExtraMetrics, false);
+        return Activity.builder()
+                .userId(userId)
+                .type(request.getType())
+                .duration(request.getDuration())
+                .caloriesBurnt(request.getCaloriesBurnt())
+                .startTime(request.getStartTime())
+                .metrics(metrics)
+                .schemaVersion(Activity.SCHEMA_VERSION)
+                .samplePreview(samples != null ? activitySampleService.preview(samples) : null)
+                .sampleCount(samples != null ? samples.size() : null)
+                .build();
+    }
+
+    ActivityResponse mapToResponse(Activity activity) {
         ActivityResponse response = new ActivityResponse();
         response.setId(activity.getId());
         response.setUserId(activity.getUserId());
@@ -66,7 +288,12 @@ public class ActivityService {
         response.setDuration(activity.getDuration());
         response.setCaloriesBurnt(activity.getCaloriesBurnt());
         response.setStartTime(activity.getStartTime());
-        response.setAdditionalMetrics(activity.getAdditionalMetrics());
+        ActivityMetrics metrics = activity.getMetrics() != null
+                ? activity.getMetrics()
+                : ActivityMetrics.fromMap(activity.getLegacyMetrics(), maxExtraMetrics, true);
+        response.setAdditionalMetrics(metrics != null ? metrics.toMap() : null);
+        response.setSamplePreview(activity.getSamplePreview());
+        response.setSampleCount(activity.getSampleCount());
         response.setCreatedAt(activity.getCreatedAt());
         response.setUpdatedAt(activity.getUpdatedAt());
         return response;
@@ -77,9 +304,144 @@ public class ActivityService {
         return activities.stream().map(this::mapToResponse).collect(Collectors.toList());
     }
 
+    // only the requested fields are read from Mongo and serialized
+    public List<ActivityResponse> getUserActivity(String userId, List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return getUserActivity(userId);
+        }
+
+        Query query = Query.query(Criteria.where("userId").is(userId));
+        for (String field : fields) {
+            if (!SELECTABLE_FIELDS.contains(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + field);
+            }
+            if (field.equals("additionalMetrics")) {
+                query.fields().include("metrics", "legacyMetrics");
+            } else {
+                query.fields().include(field);
+            }
+        }
+        return mongoTemplate.find(query, Activity.class).stream().map(this::mapToResponse).toList();
+    }
+
+    // one page of the user's history, read with a limit so memory does not grow with the history
+    public ActivityPage getUserActivityPage(String userId, String cursor, Integer limit) {
+        return findPage(Query.query(Criteria.where("userId").is(userId)), cursor, limit);
+    }
+
+    public ActivityPage searchActivities(String userId, ActivitySearchRequest search) {
+        return findPage(searchQuery(userId, search), search.getCursor(), search.getLimit());
+    }
+
+    public Map<String, Object> explainSearch(String userId, ActivitySearchRequest search) {
+        if (!explainEnabled) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        Query query = searchQuery(userId, search);
+        pageQuery(query, search.getCursor(), search.getLimit());
+        return queryPlanInspector.explain(query, Activity.class);
+    }
+
+    // userId, type and startTime are matched by the indexes in ActivityIndexes,
+    // calorie and duration bounds only filter what that index range returns
+    private Query searchQuery(String userId, ActivitySearchRequest search) {
+        Query query = Query.query(Criteria.where("userId").is(userId));
+        if (search.getType() != null) {
+            query.addCriteria(Criteria.where("type").is(search.getType()));
+        }
+        if (search.getFrom() != null || search.getTo() != null) {
+            Criteria startTime = Criteria.where("startTime");
+            if (search.getFrom() != null) {
+                startTime.gte(search.getFrom());
+            }
+            if (search.getTo() != null) {
+                startTime.lt(search.getTo());
+            }
+            query.addCriteria(startTime);
+        }
+        addRange(query, "caloriesBurnt", search.getMinCalories(), search.getMaxCalories());
+        addRange(query, "duration", search.getMinDuration(), search.getMaxDuration());
+        return query;
+    }
+
+    private void addRange(Query query, String field, Integer min, Integer max) {
+        if (min == null && max == null) {
+            return;
+        }
+        Criteria range = Criteria.where(field);
+        if (min != null) {
+            range.gte(min);
+        }
+        if (max != null) {
+            range.lte(max);
+        }
+        query.addCriteria(range);
+    }
+
+    private ActivityPage findPage(Query query, String cursor, Integer limit) {
+        int pageSize = pageQuery(query, cursor, limit) - 1;
+
+        List<Activity> activities = mongoTemplate.find(query, Activity.class);
+        String nextCursor = null;
+        if (activities.size() > pageSize) {
+            activities = activities.subList(0, pageSize);
+            nextCursor = ActivityCursor.after(activities.get(pageSize - 1)).encode();
+        }
+        return new ActivityPage(activities.stream().map(this::mapToResponse).toList(), nextCursor);
+    }
+
+    // positions the query after the cursor in history order and returns the row limit it set
+    private int pageQuery(Query query, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.clamp(limit, 1, maxPageSize);
+        if (cursor != null && !cursor.isEmpty()) {
+            query.addCriteria(ActivityCursor.decode(cursor).nextPage());
+        }
+        // one extra row tells us whether there is a next page
+        query.with(HISTORY_ORDER).limit(pageSize + 1);
+        return pageSize + 1;
+    }
+
+    // writes the whole history as NDJSON straight from a Mongo cursor, one activity at a time
+    public void streamUserActivity(String userId, OutputStream out) throws IOException {
+        Query query = Query.query(Criteria.where("userId").is(userId))
+                .with(HISTORY_ORDER)
+                .cursorBatchSize(streamCursorBatchSize);
+
+        try (Stream<Activity> activities = mongoTemplate.stream(query, Activity.class);
+                SequenceWriter writer = objectMapper.writerFor(ActivityResponse.class)
+                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                        .withRootValueSeparator("\n")
+                        .writeValues(out)) {
+            Iterator<Activity> iterator = activities.iterator();
+            while (iterator.hasNext()) {
+                writer.write(mapToResponse(iterator.next()));
+            }
+        }
+    }
+
     public ActivityResponse getActivityById(String activityId) {
-        return activityRepository.findById(activityId)
-                .map(this::mapToResponse)
-                .orElseThrow(() -> new RuntimeException("Activity not found"));
+        Activity activity = findActivity(activityId);
+        if (activity == null) {
+            throw new RuntimeException("Activity not found");
+        }
+        return mapToResponse(activity);
+    }
+
+    private ActivityResponse replay(IdempotencyRecord record, String requestHash) {
+        if (record != null) {
+            idempotencyService.checkSameRequest(record, requestHash);
+        }
+        Activity activity = record != null ? findActivity(record.getActivityId()) : null;
+        if (activity == null) {
+            // the first request reserved the key but has not written its activity yet
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still in progress");
+        }
+        return mapToResponse(activity);
+    }
+
+    // concurrent misses for the same id wait on a single load; unknown ids are not cached
+    private Activity findActivity(String activityId) {
+        return activityCache.get(activityId, id -> activityRepository.findById(id).orElse(null));
     }
 }
@@ -0,0 +1,167 @@
+package com.fitness.activityservice.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fitness.activityservice.model.IdempotencyRecord;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.mongodb.client.result.UpdateResult;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Remembers which activity a client's Idempotency-Key produced. The key is reserved in Mongo
+ * before the activity is written; the _id unique index makes one of two racing retries lose.
+ * A reservation whose holder died before writing its activity can be taken over after a lease.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, IdempotencyRecord> idempotencyCache;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    @Value("${activity.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    // longer than any activity write, a pending reservation older than this was abandoned
+    @Value("${activity.idempotency.lease:30s}")
+    private Duration lease;
+
+    @PostConstruct
+    public void init() {
+        mongoTemplate.indexOps(IdempotencyRecord.class).ensureIndex(new Index()
+                .on("createdAt", Sort.Direction.ASC)
+                .expire(ttl.toSeconds(), TimeUnit.SECONDS));
+    }
+
+    public String scope(String userId, String key) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        return userId + ":" + key;
+    }
+
+    // map keys are sorted so that the same request always hashes the same
+    public String hash(Object request) {
+        try {
+            byte[] body = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to hash request", e);
+        }
+    }
+
+    // what an earlier request with this key left, or null
+    public IdempotencyRecord find(String scopedKey) {
+        IdempotencyRecord cached = idempotencyCache.getIfPresent(scopedKey);
+        if (cached != null) {
+            duplicate("cache");
+            return cached;
+        }
+        IdempotencyRecord record = mongoTemplate.findById(scopedKey, IdempotencyRecord.class);
+        if (record == null) {
+            return null;
+        }
+        if (record.getStatus() != IdempotencyRecord.Status.PENDING) {
+            idempotencyCache.put(scopedKey, record);
+        }
+        duplicate("store");
+        return record;
+    }
+
+    // the same key sent with a different body is a client bug, not a retry
+    public void checkSameRequest(IdempotencyRecord record, String requestHash) {
+        if (record.getRequestHash() != null && !record.getRequestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used for a different request");
+        }
+    }
+
+    // pending past its lease; the caller still has to check that its activity was never written
+    public boolean isAbandoned(IdempotencyRecord record) {
+        return record.getStatus() == IdempotencyRecord.Status.PENDING
+                && record.getCreatedAt().toInstant().isBefore(Instant.now().minus(lease));
+    }
+
+    // false when another request holds the key already
+    public boolean reserve(String scopedKey, String activityId, String requestHash) {
+        try {
+            mongoTemplate.insert(new IdempotencyRecord(scopedKey, activityId, requestHash,
+                    IdempotencyRecord.Status.PENDING, new Date()));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    // moves an abandoned reservation to a new activity; false when another retry took it first
+    public boolean takeOver(IdempotencyRecord abandoned, String activityId) {
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(abandoned.getId())
+                        .and("activityId").is(abandoned.getActivityId())
+                        .and("status").is(IdempotencyRecord.Status.PENDING)),
+                new Update().set("activityId", activityId).set("createdAt", new Date()),
+                IdempotencyRecord.class);
+        if (result.getModifiedCount() == 1) {
+            log.info("Took over abandoned idempotency key {}", abandoned.getId());
+            return true;
+        }
+        return false;
+    }
+
+    // a failure here only costs replays a lookup of the activity, they still find it
+    public void complete(String scopedKey, String activityId, String requestHash) {
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(scopedKey)),
+                    new Update().set("status", IdempotencyRecord.Status.COMPLETED), IdempotencyRecord.class);
+        } catch (RuntimeException e) {
+            log.warn("Failed to complete idempotency key {}", scopedKey, e);
+        }
+        idempotencyCache.put(scopedKey, new IdempotencyRecord(scopedKey, activityId, requestHash,
+                IdempotencyRecord.Status.COMPLETED, new Date()));
+    }
+
+    // the activity write failed, a retry must be able to try again
+    public void release(String scopedKey) {
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(scopedKey)), IdempotencyRecord.class);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release idempotency key {}", scopedKey, e);
+        }
+    }
+
+    private void duplicate(String source) {
+        meterRegistry.counter("activity.idempotency.duplicates", "source", source).increment();
+    }
+}
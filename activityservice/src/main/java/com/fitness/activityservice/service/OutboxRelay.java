@@ -0,0 +1,244 @@
+package com.fitness.activityservice.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.OutboxEvent;
+import com.fitness.activityservice.model.SeriesPreview;
+import com.fitness.eventcontract.ActivityEvent;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drains the activity outbox to RabbitMQ in batches. An event is deleted only after the broker
+ * confirms it, so whatever is still in the outbox after a restart is simply picked up again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private final MongoTemplate mongoTemplate;
+    private final RabbitTemplate rabbitTemplate;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchange;
+
+    @Value("${rabbitmq.routing.key}")
+    private String routingKey;
+
+    @Value("${activity.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${activity.outbox.max-in-flight:50}")
+    private int maxInFlight;
+
+    // publishing and waiting for confirms of one batch, must end well inside its claim-timeout lease
+    @Value("${activity.outbox.batch-timeout:20s}")
+    private Duration batchTimeout;
+
+    // events younger than this may still be waiting for their activity write
+    @Value("${activity.outbox.grace-period:1s}")
+    private Duration gracePeriod;
+
+    // an event whose activity is still missing after this long belongs to a failed write
+    @Value("${activity.outbox.orphan-timeout:1m}")
+    private Duration orphanTimeout;
+
+    @Value("${activity.outbox.claim-timeout:30s}")
+    private Duration claimTimeout;
+
+    @PostConstruct
+    public void init() {
+        if (batchTimeout.compareTo(claimTimeout) >= 0) {
+            throw new IllegalStateException("activity.outbox.batch-timeout (" + batchTimeout
+                    + ") must be shorter than activity.outbox.claim-timeout (" + claimTimeout + ")");
+        }
+        mongoTemplate.indexOps(OutboxEvent.class).ensureIndex(new Index().on("createdAt", Sort.Direction.ASC));
+    }
+
+    @Scheduled(fixedDelayString = "${activity.outbox.poll-interval:500ms}")
+    public void relay() {
+        try {
+            while (relayBatch()) {
+                // keep draining while whole batches leave the outbox in time
+            }
+        } catch (RuntimeException e) {
+            log.error("Outbox relay failed, will retry", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // true when the whole batch left the outbox, acked by the broker or dropped as orphans, before its
+    // deadline; anything else stops the drain, the next poll starts over with a fresh lease
+    private boolean relayBatch() throws InterruptedException {
+        // taken before the claim, so the lease always outlives it
+        long deadline = System.nanoTime() + batchTimeout.toNanos();
+        List<OutboxEvent> events = claimBatch();
+        if (events.isEmpty()) {
+            return false;
+        }
+
+        Set<String> savedActivityIds = savedActivityIds(events);
+        LocalDateTime orphanCutoff = LocalDateTime.now().minus(orphanTimeout);
+
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<String> pendingIds = new ArrayList<>(events.size());
+        List<CompletableFuture<Boolean>> confirms = new ArrayList<>(events.size());
+        List<String> finishedIds = new ArrayList<>(events.size());
+
+        for (OutboxEvent event : events) {
+            if (!savedActivityIds.contains(event.getId())) {
+                if (event.getCreatedAt().isBefore(orphanCutoff)) {
+                    finishedIds.add(event.getId());
+                }
+                continue;
+            }
+
+            // out of time or confirms are not coming back, the rest of the batch waits for its lease to run out
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !inFlight.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                log.warn("Outbox batch deadline of {} reached, leaving the rest of the batch for later", batchTimeout);
+                break;
+            }
+            CorrelationData correlationData = new CorrelationData(event.getId());
+            CompletableFuture<Boolean> confirm = correlationData.getFuture()
+                    .thenApply(CorrelationData.Confirm::isAck)
+                    .whenComplete((_, _) -> inFlight.release());
+            try {
+                rabbitTemplate.convertAndSend(exchange, routingKey, toActivityEvent(event.getPayload()), correlationData);
+            } catch (RuntimeException e) {
+                inFlight.release();
+                log.warn("Failed to publish outbox event {}", event.getId(), e);
+                break;
+            }
+            pendingIds.add(event.getId());
+            confirms.add(confirm);
+        }
+
+        awaitConfirms(confirms, deadline);
+        for (int i = 0; i < confirms.size(); i++) {
+            CompletableFuture<Boolean> confirm = confirms.get(i);
+            if (confirm.state() == Future.State.SUCCESS && confirm.resultNow()) {
+                finishedIds.add(pendingIds.get(i));
+            }
+        }
+
+        if (!finishedIds.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(finishedIds)), OutboxEvent.class);
+        }
+        log.debug("Relayed {} of {} outbox events", finishedIds.size(), events.size());
+        return finishedIds.size() == batchSize && deadline - System.nanoTime() > 0;
+    }
+
+    // takes a lease on the oldest unclaimed events so that other instances skip them
+    private List<OutboxEvent> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria claimable = new Criteria().orOperator(
+                Criteria.where("claimedUntil").is(null),
+                Criteria.where("claimedUntil").lt(now));
+
+        Query candidates = Query.query(new Criteria().andOperator(
+                        Criteria.where("createdAt").lt(now.minus(gracePeriod)), claimable))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .limit(batchSize);
+        candidates.fields().include("_id");
+        List<String> ids = mongoTemplate.find(candidates, OutboxEvent.class).stream().map(OutboxEvent::getId).toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        mongoTemplate.updateMulti(
+                Query.query(new Criteria().andOperator(Criteria.where("_id").in(ids), claimable)),
+                new Update().set("claimedBy", instanceId).set("claimedUntil", now.plus(claimTimeout)),
+                OutboxEvent.class);
+
+        return mongoTemplate.find(
+                Query.query(Criteria.where("_id").in(ids).and("claimedBy").is(instanceId))
+                        .with(Sort.by(Sort.Direction.ASC, "createdAt")),
+                OutboxEvent.class);
+    }
+
+    private Set<String> savedActivityIds(List<OutboxEvent> events) {
+        Query query = Query.query(Criteria.where("_id").in(events.stream().map(OutboxEvent::getId).toList()));
+        query.fields().include("_id");
+        Set<String> ids = new HashSet<>();
+        for (Activity activity : mongoTemplate.find(query, Activity.class)) {
+            ids.add(activity.getId());
+        }
+        return ids;
+    }
+
+    private ActivityEvent toActivityEvent(Activity activity) {
+        return ActivityEvent.builder()
+                .id(activity.getId())
+                .userId(activity.getUserId())
+                .type(activity.getType() != null ? activity.getType().name() : null)
+                .duration(activity.getDuration())
+                .caloriesBurnt(activity.getCaloriesBurnt())
+                .startTime(activity.getStartTime())
+                .metrics(activity.getMetrics() != null ? activity.getMetrics().toMap() : null)
+                .samplePreview(toSamplePreview(activity.getSamplePreview(),
+                        preview -> Arrays.stream(preview.getValues()).boxed().toList()))
+                .samplePreviewOffsets(toSamplePreview(activity.getSamplePreview(),
+                        preview -> Arrays.stream(preview.getOffsets()).boxed().toList()))
+                .build();
+    }
+
+    private <T> Map<String, List<T>> toSamplePreview(List<SeriesPreview> previews,
+            Function<SeriesPreview, List<T>> points) {
+        if (previews == null || previews.isEmpty()) {
+            return null;
+        }
+        Map<String, List<T>> samplePreview = new LinkedHashMap<>();
+        for (SeriesPreview preview : previews) {
+            samplePreview.put(preview.getName(), points.apply(preview));
+        }
+        return samplePreview;
+    }
+
+    // confirms still missing at the deadline count as not acked, their events stay in the outbox
+    private void awaitConfirms(List<CompletableFuture<Boolean>> confirms, long deadline) throws InterruptedException {
+        try {
+            CompletableFuture.allOf(confirms.toArray(CompletableFuture[]::new))
+                    .get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Publisher confirms missing after the outbox batch deadline of {}", batchTimeout);
+        } catch (ExecutionException e) {
+            log.warn("Publisher confirm failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.fitness.activityservice.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.client.FindIterable;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Runs a query with explain and boils the plan down to what matters when checking indexes:
+ * which stages and indexes were used, and how many keys and documents were examined.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryPlanInspector {
+
+    private final MongoTemplate mongoTemplate;
+
+    public Map<String, Object> explain(Query query, Class<?> entityClass) {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getPersistentEntity(entityClass);
+        QueryMapper queryMapper = new QueryMapper(mongoTemplate.getConverter());
+
+        FindIterable<Document> find = mongoTemplate.getCollection(mongoTemplate.getCollectionName(entityClass))
+                .find(queryMapper.getMappedObject(query.getQueryObject(), entity))
+                .sort(queryMapper.getMappedSort(query.getSortObject(), entity));
+        if (query.getLimit() > 0) {
+            find.limit(query.getLimit());
+        }
+        Document explain = find.explain(ExplainVerbosity.EXECUTION_STATS);
+
+        List<String> stages = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        Document queryPlanner = explain.get("queryPlanner", Document.class);
+        if (queryPlanner != null) {
+            collectStages(queryPlanner.get("winningPlan"), stages, indexes);
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("filter", query.getQueryObject().toJson());
+        summary.put("collectionScan", stages.contains("COLLSCAN"));
+        summary.put("stages", stages);
+        summary.put("indexes", indexes);
+
+        Document stats = explain.get("executionStats", Document.class);
+        if (stats != null) {
+            summary.put("returned", stats.get("nReturned"));
+            summary.put("keysExamined", stats.get("totalKeysExamined"));
+            summary.put("docsExamined", stats.get("totalDocsExamined"));
+            summary.put("executionTimeMillis", stats.get("executionTimeMillis"));
+        }
+        return summary;
+    }
+
+    // plans are trees of stages, newer servers also wrap them in a queryPlan document
+    private void collectStages(Object node, List<String> stages, List<String> indexes) {
+        if (node instanceof List<?> children) {
+            children.forEach(child -> collectStages(child, stages, indexes));
+            return;
+        }
+        if (!(node instanceof Document plan)) {
+            return;
+        }
+        if (plan.get("stage") instanceof String stage) {
+            stages.add(stage);
+        }
+        if (plan.get("indexName") instanceof String indexName) {
+            indexes.add(indexName);
+        }
+        collectStages(plan.get("queryPlan"), stages, indexes);
+        collectStages(plan.get("inputStage"), stages, indexes);
+        collectStages(plan.get("inputStages"), stages, indexes);
+    }
+}
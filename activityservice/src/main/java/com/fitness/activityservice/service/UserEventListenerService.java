@@ -0,0 +1,23 @@
+package com.fitness.activityservice.service;
+
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Service;
+
+import com.fitness.activityservice.dto.UserRegisteredEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UserEventListenerService {
+
+    private final UserValidationService userValidationService;
+
+    @RabbitListener(queues = "#{userEventsQueue.name}")
+    public void onUserRegistered(UserRegisteredEvent event) {
+        log.info("Received user registered: {}", event.getKeycloakId());
+        userValidationService.markValid(event.getKeycloakId());
+    }
+}
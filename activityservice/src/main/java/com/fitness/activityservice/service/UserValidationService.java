@@ -1,10 +1,18 @@
 package com.fitness.activityservice.service;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import com.github.benmanes.caffeine.cache.Cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
@@ -15,8 +23,81 @@ import reactor.core.publisher.Mono;
 public class UserValidationService {
 
     private final WebClient userServiceWebClient;
+    private final Cache<String, Boolean> validUserCache;
+    private final Cache<String, Boolean> invalidUserCache;
+    private final MeterRegistry meterRegistry;
+
+    // the gateway registers new users in the background, so a brand new user may not exist yet
+    @Value("${user.validation.registration-grace.retries:0}")
+    private int registrationGraceRetries;
+
+    @Value("${user.validation.registration-grace.delay:200ms}")
+    private Duration registrationGraceDelay;
+
+    private Counter avoidedRemoteCalls;
 
+    @PostConstruct
+    public void init() {
+        avoidedRemoteCalls = meterRegistry.counter("user.validation.remote-calls-avoided");
+    }
+
+    // single check without the registration grace period, for the batch path
     public boolean validateUser(String id) {
+        Boolean cached = cachedValidity(id);
+        if (cached != null) {
+            return cached;
+        }
+        boolean valid = Boolean.TRUE.equals(validateRemotely(id).block());
+        remember(id, valid);
+        return valid;
+    }
+
+    // waits out the registration grace period, meant for virtual request threads where the wait is cheap
+    public boolean validateUserWithGrace(String id) {
+        Boolean cached = cachedValidity(id);
+        if (cached != null) {
+            return cached;
+        }
+        return Boolean.TRUE.equals(Mono.defer(() -> validUserCache.getIfPresent(id) != null
+                        // user.registered arrived while waiting
+                        ? Mono.just(true)
+                        : validateRemotely(id))
+                // false -> ask again a few times before giving up
+                .filter(Boolean::booleanValue)
+                .repeatWhenEmpty(attempts -> attempts.take(registrationGraceRetries)
+                        .delayElements(registrationGraceDelay))
+                .defaultIfEmpty(false)
+                .doOnNext(valid -> remember(id, valid))
+                .block());
+    }
+
+    // called when USER-SERVICE announces a new user
+    public void markValid(String id) {
+        invalidUserCache.invalidate(id);
+        validUserCache.put(id, Boolean.TRUE);
+    }
+
+    private Boolean cachedValidity(String id) {
+        if (validUserCache.getIfPresent(id) != null) {
+            avoidedRemoteCalls.increment();
+            return true;
+        }
+        if (invalidUserCache.getIfPresent(id) != null) {
+            avoidedRemoteCalls.increment();
+            return false;
+        }
+        return null;
+    }
+
+    private void remember(String id, boolean valid) {
+        if (valid) {
+            validUserCache.put(id, Boolean.TRUE);
+        } else {
+            invalidUserCache.put(id, Boolean.TRUE);
+        }
+    }
+
+    private Mono<Boolean> validateRemotely(String id) {
         log.info("Calling User Validation API for userId: {}", id);
         return userServiceWebClient.get()
                 .uri("/api/users/{id}/validate", id)
@@ -32,7 +113,6 @@ public class UserValidationService {
                 .onErrorMap(WebClientRequestException.class,
                         e -> new IllegalStateException("USER-SERVICE unreachable", e))
                 // body empty -> false (avoids null)
-                .blockOptional()
-                .orElse(false);
+                .defaultIfEmpty(false);
     }
 }
@@ -0,0 +1,66 @@
+package com.fitness.activityservice.config;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fitness.activityservice.model.Activity;
+
+class ActivityMetricsMigrationTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ActivityStorage activityStorage = mock(ActivityStorage.class);
+    private final ActivityMetricsMigration migration = new ActivityMetricsMigration(mongoTemplate, activityStorage);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(migration, "migrateOnStartup", true);
+        ReflectionTestUtils.setField(migration, "batchSize", 500);
+        when(mongoTemplate.stream(any(Query.class), eq(Activity.class))).thenReturn(Stream.empty());
+        when(activityStorage.getCollectionName()).thenReturn("activities_ts");
+    }
+
+    @Test
+    void runsOnAStandardCollection() {
+        when(activityStorage.getMode()).thenReturn(ActivityStorageMode.STANDARD);
+
+        migration.start();
+
+        verify(mongoTemplate, timeout(1000)).stream(any(Query.class), eq(Activity.class));
+        verify(mongoTemplate, never()).executeCommand(any(Document.class));
+    }
+
+    @Test
+    void skipsATimeSeriesCollectionBeforeMongo7() {
+        when(activityStorage.getMode()).thenReturn(ActivityStorageMode.TIMESERIES);
+        when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(new Document("version", "6.0.14"));
+
+        migration.start();
+
+        verify(mongoTemplate, after(200).never()).stream(any(Query.class), eq(Activity.class));
+    }
+
+    @Test
+    void runsOnATimeSeriesCollectionFromMongo7() {
+        when(activityStorage.getMode()).thenReturn(ActivityStorageMode.TIMESERIES);
+        when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(new Document("version", "7.0.2"));
+
+        migration.start();
+
+        verify(mongoTemplate, timeout(1000)).stream(any(Query.class), eq(Activity.class));
+    }
+}
@@ -0,0 +1,157 @@
+package com.fitness.activityservice.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOptions;
+
+@SuppressWarnings("unchecked")
+class ActivityStorageMigrationTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 6, 1, 7, 30);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final MongoCollection<Document> checkpoints = mock(MongoCollection.class);
+    private final MongoCollection<Document> source = mock(MongoCollection.class);
+    private final MongoCollection<Document> target = mock(MongoCollection.class);
+    private final ActivityStorageMigration migration = new ActivityStorageMigration(mongoTemplate,
+            mock(ActivityStorage.class));
+
+    @BeforeEach
+    void collections() {
+        when(mongoTemplate.getCollection("activity_migrations")).thenReturn(checkpoints);
+        when(mongoTemplate.getCollection("activities")).thenReturn(source);
+        when(mongoTemplate.getCollection("activities_ts")).thenReturn(target);
+        ReflectionTestUtils.setField(migration, "batchSize", 2);
+    }
+
+    @Test
+    void copiesInBatchesAndCheckpointsEach() {
+        checkpoint(null);
+        sourceReturns(activity(1), activity(2), activity(3));
+
+        migration.migrate("activities", "activities_ts");
+
+        verify(target, times(2)).insertMany(any(List.class), any(InsertManyOptions.class));
+        ArgumentCaptor<Document> written = ArgumentCaptor.forClass(Document.class);
+        verify(checkpoints, times(2)).replaceOne(any(Bson.class), written.capture(), any(ReplaceOptions.class));
+        assertThat(written.getAllValues().getLast())
+                .containsEntry("done", true)
+                .containsEntry("lastId", 3)
+                .containsEntry("copied", 3L);
+    }
+
+    @Test
+    void resumeRemovesOnlyTheNextSourceBatchFromTheTarget() {
+        checkpoint(new Document("_id", "activities->activities_ts").append("lastId", 2).append("copied", 2L));
+        sourceReturns(activity(3), activity(4), activity(5));
+
+        migration.migrate("activities", "activities_ts");
+
+        ArgumentCaptor<Bson> deleted = ArgumentCaptor.forClass(Bson.class);
+        verify(target, times(1)).deleteMany(deleted.capture());
+        // activities written to the target after the switch have ids above lastId too, they must survive
+        assertThat(deleted.getValue().toBsonDocument()).isEqualTo(Filters.in("_id", List.of(3, 4)).toBsonDocument());
+    }
+
+    @Test
+    void finishedMigrationDoesNothing() {
+        checkpoint(new Document("_id", "activities->activities_ts").append("done", true));
+
+        migration.migrate("activities", "activities_ts");
+
+        verify(source, never()).find(any(Bson.class));
+        verify(target, never()).deleteMany(any(Bson.class));
+    }
+
+    @Test
+    void fillsTheTimeFieldAndCountsActivitiesWithoutOne() {
+        checkpoint(null);
+        ObjectId objectId = new ObjectId(Date.from(Instant.parse("2025-06-02T08:00:00Z")));
+        Document withoutStart = new Document("_id", 1).append("createdAt", TIME);
+        Document withOnlyAnObjectId = new Document("_id", objectId);
+        Document withoutAnyTime = new Document("_id", 2);
+        sourceReturns(withoutStart, withOnlyAnObjectId, withoutAnyTime);
+        // the migration reuses its batch list, keep a copy of what was written
+        List<Document> inserted = new ArrayList<>();
+        doAnswer(invocation -> {
+            inserted.addAll(invocation.getArgument(0));
+            return null;
+        }).when(target)
+                .insertMany(any(List.class), any(InsertManyOptions.class));
+
+        migration.migrate("activities", "activities_ts");
+
+        assertThat(inserted).extracting(activity -> activity.get("_id")).containsExactly(1, objectId);
+        assertThat(inserted.get(0).get("startTime")).isEqualTo(TIME);
+        assertThat(inserted.get(1).get("startTime")).isEqualTo(objectId.getDate());
+        ArgumentCaptor<Document> written = ArgumentCaptor.forClass(Document.class);
+        verify(checkpoints, times(2)).replaceOne(any(Bson.class), written.capture(), any(ReplaceOptions.class));
+        assertThat(written.getAllValues().getLast())
+                .containsEntry("copied", 2L)
+                .containsEntry("skipped", 1L);
+    }
+
+    @Test
+    void resumeKeepsCountingSkippedActivities() {
+        checkpoint(new Document("_id", "activities->activities_ts").append("lastId", 2).append("copied", 2L)
+                .append("skipped", 4L));
+        sourceReturns(new Document("_id", 3));
+
+        migration.migrate("activities", "activities_ts");
+
+        ArgumentCaptor<Document> written = ArgumentCaptor.forClass(Document.class);
+        verify(checkpoints).replaceOne(any(Bson.class), written.capture(), any(ReplaceOptions.class));
+        assertThat(written.getValue()).containsEntry("done", true).containsEntry("skipped", 5L);
+    }
+
+    private void checkpoint(Document checkpoint) {
+        FindIterable<Document> found = mock(FindIterable.class);
+        when(found.first()).thenReturn(checkpoint);
+        when(checkpoints.find(any(Bson.class))).thenReturn(found);
+    }
+
+    private void sourceReturns(Document... activities) {
+        Iterator<Document> documents = List.of(activities).iterator();
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(cursor.hasNext()).thenAnswer(_ -> documents.hasNext());
+        when(cursor.next()).thenAnswer(_ -> documents.next());
+        FindIterable<Document> found = mock(FindIterable.class);
+        when(found.sort(any(Bson.class))).thenReturn(found);
+        when(found.batchSize(anyInt())).thenReturn(found);
+        when(found.iterator()).thenReturn(cursor);
+        when(source.find(any(Bson.class))).thenReturn(found);
+    }
+
+    private static Document activity(int id) {
+        return new Document("_id", id).append("startTime", TIME.plusHours(id));
+    }
+}
@@ -0,0 +1,137 @@
+package com.fitness.activityservice.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+
+import lombok.extern.slf4j.Slf4j;
+
+// mvn test -Dbenchmark=true -Dbenchmark.mongodb=mongodb://localhost:27017
+// the same per-user date range query as the search endpoint, against the standard and the time-series
+// layout with the indexes ActivityIndexes puts on them; runs in a scratch database that is dropped after
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "benchmark.mongodb", matches = ".+")
+class ActivityStorageRangeQueryTest {
+
+    private static final String DATABASE = "activity_storage_benchmark";
+    private static final int USERS = 1_000;
+    private static final int DAYS = 365;
+    private static final int QUERIES = 2_000;
+    private static final int RANGE_DAYS = 30;
+    private static final int PAGE_SIZE = 50;
+    private static final LocalDateTime FIRST_DAY = LocalDateTime.of(2025, 1, 1, 7, 0);
+
+    @Test
+    void rangeQueriesOnBothLayouts() {
+        try (MongoClient client = MongoClients.create(System.getProperty("benchmark.mongodb"))) {
+            MongoDatabase database = client.getDatabase(DATABASE);
+            database.drop();
+            try {
+                MongoCollection<Document> standard = database.getCollection(ActivityStorage.STANDARD_COLLECTION);
+                database.createCollection("activities_ts", new CreateCollectionOptions()
+                        .timeSeriesOptions(new TimeSeriesOptions("startTime")
+                                .metaField("userId")
+                                .granularity(TimeSeriesGranularity.HOURS)));
+                MongoCollection<Document> timeSeries = database.getCollection("activities_ts");
+                for (MongoCollection<Document> collection : List.of(standard, timeSeries)) {
+                    collection.createIndex(Indexes.compoundIndex(Indexes.ascending("userId"),
+                            Indexes.descending("startTime", "_id")), new IndexOptions().name("userId_startTime_id"));
+                }
+                seed(standard, timeSeries);
+
+                long[] seeds = ThreadLocalRandom.current().longs(QUERIES).toArray();
+                int standardRows = run("standard", standard, seeds);
+                int timeSeriesRows = run("timeseries", timeSeries, seeds);
+
+                assertThat(timeSeriesRows).isEqualTo(standardRows);
+            } finally {
+                database.drop();
+            }
+        }
+    }
+
+    // one activity per user and day, written to both layouts in the same order
+    private static void seed(MongoCollection<Document> standard, MongoCollection<Document> timeSeries) {
+        List<Document> batch = new ArrayList<>(DAYS);
+        for (int user = 0; user < USERS; user++) {
+            for (int day = 0; day < DAYS; day++) {
+                LocalDateTime startTime = FIRST_DAY.plusDays(day).plusMinutes(user % 120);
+                batch.add(new Document("_id", new ObjectId())
+                        .append("userId", "user-" + user)
+                        .append("type", day % 3 == 0 ? "CYCLING" : "RUNNING")
+                        .append("duration", 30 + day % 60)
+                        .append("caloriesBurnt", 250 + day % 400)
+                        .append("startTime", startTime)
+                        .append("createdAt", startTime));
+            }
+            standard.insertMany(batch, new InsertManyOptions().ordered(false));
+            timeSeries.insertMany(copies(batch), new InsertManyOptions().ordered(false));
+            batch.clear();
+        }
+    }
+
+    // returns the rows read, so both layouts can be checked for the same answers
+    private static int run(String name, MongoCollection<Document> collection, long[] seeds) {
+        for (int i = 0; i < QUERIES / 10; i++) {
+            query(collection, seeds[i]);
+        }
+        List<Long> latencies = new ArrayList<>(QUERIES);
+        int rows = 0;
+        for (long seed : seeds) {
+            long start = System.nanoTime();
+            rows += query(collection, seed).size();
+            latencies.add(System.nanoTime() - start);
+        }
+        Collections.sort(latencies);
+        Document stats = collection.aggregate(List.of(
+                new Document("$collStats", new Document("storageStats", new Document())))).first();
+        Document storage = stats != null ? stats.get("storageStats", Document.class) : new Document();
+        log.info("{}: p50 {} us, p99 {} us, {} rows, storage {} MB, indexes {} MB", name,
+                latencies.get(QUERIES / 2) / 1_000, latencies.get((int) (QUERIES * 0.99)) / 1_000, rows,
+                megabytes(storage.get("storageSize")), megabytes(storage.get("totalIndexSize")));
+        return rows;
+    }
+
+    private static List<Document> query(MongoCollection<Document> collection, long seed) {
+        int user = (int) Math.floorMod(seed, (long) USERS);
+        LocalDateTime from = FIRST_DAY.plusDays(Math.floorMod(seed >> 16, (long) (DAYS - RANGE_DAYS)));
+        Bson filter = Filters.and(Filters.eq("userId", "user-" + user),
+                Filters.gte("startTime", from), Filters.lt("startTime", from.plusDays(RANGE_DAYS)));
+        return collection.find(filter)
+                .sort(Sorts.descending("startTime", "_id"))
+                .limit(PAGE_SIZE)
+                .into(new ArrayList<>());
+    }
+
+    private static List<Document> copies(List<Document> batch) {
+        return batch.stream().map(Document::new).toList();
+    }
+
+    private static String megabytes(Object bytes) {
+        return bytes instanceof Number number ? "%.1f".formatted(number.doubleValue() / 1e6) : "?";
+    }
+}
@@ -0,0 +1,327 @@
+package com.fitness.activityservice.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.fitness.activityservice.model.ActivityMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class FitParserTest {
+
+    private static final int SESSION = 18;
+    private static final int RECORD = 20;
+
+    // field number, size in bytes
+    private static final int[] TIMESTAMP = { 253, 4 };
+    private static final int[] LAT = { 0, 4 };
+    private static final int[] LON = { 1, 4 };
+    private static final int[] ALTITUDE = { 2, 2 };
+    private static final int[] HEART_RATE = { 3, 1 };
+    private static final int[] CADENCE = { 4, 1 };
+    private static final int[] DISTANCE = { 5, 4 };
+
+    private static final long FIT_EPOCH_SECONDS = 631_065_600L;
+    private static final long T0 = 1_100_000_000L;
+
+    private final FitParser parser = new FitParser();
+
+    @Test
+    void decodesRecordFields() throws IOException {
+        WorkoutStats stats = parse(track(false));
+
+        assertThat(stats.getStartTime()).isEqualTo(Instant.ofEpochSecond(FIT_EPOCH_SECONDS + T0));
+        // 0.01 degrees of latitude south of -33.0
+        assertThat(stats.getDistanceKm()).isCloseTo(1.112, within(0.001));
+        assertThat(stats.toMetrics())
+                .containsEntry(ActivityMetrics.ELEVATION_GAIN_M, 5.0)
+                .containsEntry(ActivityMetrics.AVG_HEART_RATE, 155)
+                .containsEntry(ActivityMetrics.MAX_HEART_RATE, 160)
+                .containsEntry(ActivityMetrics.AVG_CADENCE, 85)
+                .containsEntry("movingTimeSeconds", 5L);
+    }
+
+    @Test
+    void bigEndianDefinitionDecodesTheSameValues() throws IOException {
+        WorkoutStats little = parse(track(false));
+        WorkoutStats big = parse(track(true));
+
+        assertThat(big.getStartTime()).isEqualTo(little.getStartTime());
+        assertThat(big.toMetrics()).isEqualTo(little.toMetrics());
+    }
+
+    @Test
+    void compressedTimestampsAreOffsetsFromTheLastFullTimestamp() throws IOException {
+        // 1010 ends in 18 (5 bits); offset 25 is 1017, offset 2 has wrapped to 1026
+        byte[] file = new Fit()
+                .definition(0, false, RECORD, TIMESTAMP, HEART_RATE)
+                .definition(1, false, RECORD, HEART_RATE)
+                .record(0, 1010, 150)
+                .compressed(1, 25, 150)
+                .compressed(1, 2, 150)
+                .bytes();
+
+        Map<String, Object> metrics = parse(file).toMetrics();
+
+        assertThat(metrics).containsEntry("movingTimeSeconds", 16L).containsEntry("hrZone3Seconds", 16L);
+    }
+
+    @Test
+    void developerFieldsAreSkipped() throws IOException {
+        byte[] file = new Fit()
+                .developerDefinition(0, RECORD, 3, TIMESTAMP, HEART_RATE)
+                .record(0, T0, 140)
+                .record(0, T0 + 4, 150)
+                .bytes();
+
+        Map<String, Object> metrics = parse(file).toMetrics();
+
+        assertThat(metrics)
+                .containsEntry(ActivityMetrics.AVG_HEART_RATE, 145)
+                .containsEntry(ActivityMetrics.MAX_HEART_RATE, 150)
+                .containsEntry("movingTimeSeconds", 4L);
+    }
+
+    @Test
+    void invalidSentinelsAreMissingValues() throws IOException {
+        Fit fit = new Fit().definition(0, false, RECORD, TIMESTAMP, LAT, LON, ALTITUDE, HEART_RATE, CADENCE, DISTANCE);
+        for (long time = T0; time <= T0 + 5; time += 5) {
+            fit.record(0, time, 0x7FFFFFFFL, 0x7FFFFFFFL, 0xFFFF, 0xFF, 0xFF, 0xFFFFFFFFL);
+        }
+
+        WorkoutStats stats = parse(fit.bytes());
+
+        assertThat(stats.getDistanceKm()).isZero();
+        assertThat(stats.toMetrics())
+                .containsOnlyKeys("movingTimeSeconds")
+                .containsEntry("movingTimeSeconds", 5L);
+    }
+
+    @Test
+    void invalidTimestampLeavesTheSampleUntimed() throws IOException {
+        byte[] file = new Fit()
+                .definition(0, false, RECORD, TIMESTAMP, HEART_RATE)
+                .record(0, 0xFFFFFFFFL, 150)
+                .bytes();
+
+        assertThat(parse(file).isEmpty()).isTrue();
+    }
+
+    @Test
+    void sessionSetsSportAndCalories() throws IOException {
+        byte[] file = new Fit()
+                .definition(0, false, SESSION, new int[] { 5, 1 }, new int[] { 11, 2 })
+                .record(0, 1, 450)
+                .bytes();
+
+        WorkoutStats stats = parse(file);
+
+        assertThat(stats.getSport()).isEqualTo("running");
+        assertThat(stats.getTotalCalories()).isEqualTo(450);
+    }
+
+    @Test
+    void truncatedFileIsRejected() {
+        byte[] file = track(false);
+        byte[] truncated = Arrays.copyOf(file, file.length - 6);
+
+        assertThatThrownBy(() -> parse(truncated))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Truncated FIT file");
+    }
+
+    @Test
+    void otherFilesAreRejected() {
+        byte[] file = "<?xml version=\"1.0\"?><gpx/>".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> parse(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Not a FIT file");
+    }
+
+    @Test
+    void dataBeforeItsDefinitionIsRejected() {
+        byte[] file = new Fit()
+                .definition(0, false, RECORD, HEART_RATE)
+                .record(0, 150)
+                .raw(0x03, 150)
+                .bytes();
+
+        assertThatThrownBy(() -> parse(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("without definition");
+    }
+
+    // mvn test -Dbenchmark=true
+    // ~100MB of one-second records streamed through the parser, live heap must not grow with the file
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void throughputAndBoundedHeap() throws IOException {
+        Fit head = new Fit()
+                .definition(0, false, RECORD, TIMESTAMP, LAT, LON, ALTITUDE, HEART_RATE, CADENCE)
+                .definition(1, false, RECORD, LAT, LON, ALTITUDE, HEART_RATE, CADENCE)
+                .record(0, T0, semicircles(47.0), semicircles(8.0), 2500, 140, 80);
+        Fit block = new Fit()
+                .definition(1, false, RECORD, LAT, LON, ALTITUDE, HEART_RATE, CADENCE);
+        for (int second = 1; second <= 32; second++) {
+            block.compressed(1, (int) ((T0 + second) & 0x1F), semicircles(47.0 + second * 1e-5),
+                    semicircles(8.0), 2500 + second, 140 + second % 10, 80);
+        }
+        byte[] headBytes = head.data();
+        byte[] blockBytes = block.records();
+        long repeats = (100L << 20) / blockBytes.length;
+        byte[] header = Fit.header(headBytes.length + blockBytes.length * repeats);
+
+        RepeatingInputStream in = new RepeatingInputStream(concat(header, headBytes), blockBytes, repeats,
+                new byte[2]);
+        WorkoutStats stats = new WorkoutStats(190);
+        long start = System.nanoTime();
+        parser.parse(in, stats);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        log.info("FIT: {} MB in {} s, {} MB/s, peak heap growth {} MB, {} min",
+                "%.1f".formatted(in.bytesRead() / 1e6), "%.2f".formatted(seconds),
+                "%.1f".formatted(in.bytesRead() / 1e6 / seconds), "%.1f".formatted(in.peakHeapGrowth() / 1e6),
+                stats.getDurationMinutes());
+        assertThat(in.peakHeapGrowth()).isLessThan(32L << 20);
+    }
+
+    private WorkoutStats parse(byte[] file) throws IOException {
+        WorkoutStats stats = new WorkoutStats(190);
+        parser.parse(new ByteArrayInputStream(file), stats);
+        return stats;
+    }
+
+    // two samples five seconds apart
+    private static byte[] track(boolean bigEndian) {
+        return new Fit()
+                .definition(0, bigEndian, RECORD, TIMESTAMP, LAT, LON, ALTITUDE, HEART_RATE, CADENCE)
+                .record(0, T0, semicircles(-33.0), semicircles(151.0), 3000, 150, 80)
+                .record(0, T0 + 5, semicircles(-33.01), semicircles(151.0), 3025, 160, 90)
+                .bytes();
+    }
+
+    private static long semicircles(double degrees) {
+        return Math.round(degrees * (1L << 31) / 180) & 0xFFFFFFFFL;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] both = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        return both;
+    }
+
+    // writes FIT messages the way a device does, data records follow the local definition they use
+    private static final class Fit {
+
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private final int[][] sizes = new int[16][];
+        private final boolean[] bigEndian = new boolean[16];
+        private final int[] developerBytes = new int[16];
+
+        Fit definition(int local, boolean bigEndian, int global, int[]... fields) {
+            return define(0x40, local, bigEndian, global, 0, fields);
+        }
+
+        Fit developerDefinition(int local, int global, int developerBytes, int[]... fields) {
+            return define(0x60, local, false, global, developerBytes, fields);
+        }
+
+        Fit record(int local, long... values) {
+            return message(local, local, values);
+        }
+
+        Fit compressed(int local, int offset, long... values) {
+            return message(local, 0x80 | (local << 5) | offset, values);
+        }
+
+        Fit raw(int... bytes) {
+            for (int b : bytes) {
+                data.write(b);
+            }
+            return this;
+        }
+
+        byte[] bytes() {
+            byte[] body = data();
+            return concat(concat(header(body.length), body), new byte[2]);
+        }
+
+        byte[] data() {
+            return data.toByteArray();
+        }
+
+        // data messages only, without the definitions
+        byte[] records() {
+            return records.toByteArray();
+        }
+
+        static byte[] header(long dataSize) {
+            return new byte[] { 14, 0x20, 0x08, 0x08,
+                    (byte) dataSize, (byte) (dataSize >> 8), (byte) (dataSize >> 16), (byte) (dataSize >> 24),
+                    '.', 'F', 'I', 'T', 0, 0 };
+        }
+
+        private Fit define(int header, int local, boolean bigEndian, int global, int developerBytes,
+                int[]... fields) {
+            data.write(header | local);
+            data.write(0);
+            data.write(bigEndian ? 1 : 0);
+            write(data, global, 2, bigEndian);
+            data.write(fields.length);
+            int[] fieldSizes = new int[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                data.write(fields[i][0]);
+                data.write(fields[i][1]);
+                data.write(0); // base type, ignored by the parser
+                fieldSizes[i] = fields[i][1];
+            }
+            if (developerBytes > 0) {
+                data.write(1);
+                data.write(0);
+                data.write(developerBytes);
+                data.write(0);
+            }
+            this.sizes[local] = fieldSizes;
+            this.bigEndian[local] = bigEndian;
+            this.developerBytes[local] = developerBytes;
+            return this;
+        }
+
+        private Fit message(int local, int header, long... values) {
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            message.write(header);
+            for (int i = 0; i < values.length; i++) {
+                write(message, values[i], sizes[local][i], bigEndian[local]);
+            }
+            for (int i = 0; i < developerBytes[local]; i++) {
+                message.write(i + 1);
+            }
+            byte[] bytes = message.toByteArray();
+            data.writeBytes(bytes);
+            records.writeBytes(bytes);
+            return this;
+        }
+
+        private static void write(ByteArrayOutputStream out, long value, int size, boolean bigEndian) {
+            for (int i = 0; i < size; i++) {
+                int shift = 8 * (bigEndian ? size - 1 - i : i);
+                out.write((int) (value >> shift));
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.fitness.activityservice.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.fitness.activityservice.model.ActivityMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class GpxParserTest {
+
+    private static final String HEAD = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <gpx version="1.1" creator="test" xmlns="http://www.topografix.com/GPX/1/1"
+                 xmlns:gpxtpx="http://www.garmin.com/xmlschemas/TrackPointExtension/v1">
+              <trk><type>running</type><trkseg>
+            """;
+    private static final String TAIL = "</trkseg></trk></gpx>\n";
+
+    private final GpxParser parser = new GpxParser();
+
+    @Test
+    void readsTrackPointsWithExtensions() throws IOException {
+        WorkoutStats stats = parse(HEAD
+                + point(47.0000, "400.0", "2025-06-01T07:30:00Z", "140", "80")
+                + point(47.0001, "401.0", "2025-06-01T07:30:05Z", "150", "82")
+                + point(47.0002, "403.0", "2025-06-01T07:30:10Z", "160", "84")
+                + TAIL);
+
+        assertThat(stats.getSport()).isEqualTo("running");
+        assertThat(stats.getStartTime()).isEqualTo(Instant.parse("2025-06-01T07:30:00Z"));
+        assertThat(stats.getDistanceKm()).isCloseTo(0.022, within(0.001));
+        assertThat(stats.toMetrics())
+                .containsEntry(ActivityMetrics.ELEVATION_GAIN_M, 3.0)
+                .containsEntry(ActivityMetrics.AVG_HEART_RATE, 150)
+                .containsEntry(ActivityMetrics.MAX_HEART_RATE, 160)
+                .containsEntry(ActivityMetrics.AVG_CADENCE, 82)
+                .containsEntry("movingTimeSeconds", 10L);
+    }
+
+    @Test
+    void textSplitByACommentIsJoined() throws IOException {
+        WorkoutStats stats = parse(HEAD
+                + point(47.0, "400.0", "2025-06-01T07:30:00Z", "1<!-- device note -->50", null)
+                + TAIL);
+
+        assertThat(stats.toMetrics()).containsEntry(ActivityMetrics.AVG_HEART_RATE, 150);
+    }
+
+    @Test
+    void textLongerThanTheCapIsRejected() {
+        String padded = " ".repeat(GpxParser.MAX_TEXT_LENGTH) + "400.0";
+
+        assertThatThrownBy(() -> parse(HEAD + point(47.0, padded, "2025-06-01T07:30:00Z", null, null) + TAIL))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("<ele> text is too long");
+    }
+
+    @Test
+    void elementInsideAValueIsRejected() {
+        String xml = HEAD + "<trkpt lat=\"47\" lon=\"8\"><ele>4<b/>00</ele></trkpt>" + TAIL;
+
+        assertThatThrownBy(() -> parse(xml))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid GPX file");
+    }
+
+    @Test
+    void invalidTimeIsRejected() {
+        assertThatThrownBy(() -> parse(HEAD + point(47.0, null, "yesterday", null, null) + TAIL))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid GPX file");
+    }
+
+    @Test
+    void externalEntitiesAreNotResolved() {
+        String xml = """
+                <?xml version="1.0"?>
+                <!DOCTYPE gpx [<!ENTITY secret SYSTEM "file:///etc/hostname">]>
+                <gpx><trk><type>&secret;</type></trk></gpx>
+                """;
+
+        assertThatThrownBy(() -> parse(xml)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // mvn test -Dbenchmark=true
+    // ~100MB of track points streamed through the parser, live heap must not grow with the file
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void throughputAndBoundedHeap() throws IOException {
+        StringBuilder block = new StringBuilder();
+        for (int second = 0; second < 60; second++) {
+            block.append(point(47.0 + second * 1e-5, "400.0",
+                    "2025-06-01T07:30:%02dZ".formatted(second), "150", "80"));
+        }
+        byte[] blockBytes = block.toString().getBytes(StandardCharsets.UTF_8);
+        long repeats = (100L << 20) / blockBytes.length;
+
+        RepeatingInputStream in = new RepeatingInputStream(HEAD.getBytes(StandardCharsets.UTF_8), blockBytes,
+                repeats, TAIL.getBytes(StandardCharsets.UTF_8));
+        WorkoutStats stats = new WorkoutStats(190);
+        long start = System.nanoTime();
+        parser.parse(in, stats);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        log.info("GPX: {} MB in {} s, {} MB/s, peak heap growth {} MB",
+                "%.1f".formatted(in.bytesRead() / 1e6), "%.2f".formatted(seconds),
+                "%.1f".formatted(in.bytesRead() / 1e6 / seconds), "%.1f".formatted(in.peakHeapGrowth() / 1e6));
+        assertThat(in.peakHeapGrowth()).isLessThan(32L << 20);
+    }
+
+    private WorkoutStats parse(String xml) throws IOException {
+        WorkoutStats stats = new WorkoutStats(190);
+        parser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), stats);
+        return stats;
+    }
+
+    private static String point(double lat, String elevation, String time, String heartRate, String cadence) {
+        StringBuilder point = new StringBuilder(
+                String.format(Locale.ROOT, "<trkpt lat=\"%.5f\" lon=\"8.00000\">", lat));
+        if (elevation != null) {
+            point.append("<ele>").append(elevation).append("</ele>");
+        }
+        point.append("<time>").append(time).append("</time>");
+        if (heartRate != null || cadence != null) {
+            point.append("<extensions><gpxtpx:TrackPointExtension>");
+            if (heartRate != null) {
+                point.append("<gpxtpx:hr>").append(heartRate).append("</gpxtpx:hr>");
+            }
+            if (cadence != null) {
+                point.append("<gpxtpx:cad>").append(cadence).append("</gpxtpx:cad>");
+            }
+            point.append("</gpxtpx:TrackPointExtension></extensions>");
+        }
+        return point.append("</trkpt>\n").toString();
+    }
+}
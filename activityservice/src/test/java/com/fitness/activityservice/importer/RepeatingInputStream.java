@@ -0,0 +1,79 @@
+package com.fitness.activityservice.importer;
+
+import java.io.InputStream;
+
+// head, then block repeated, then tail, generated while read so a large file never sits in memory;
+// the live heap is sampled as it goes so a parser that buffers its input shows up as growth
+final class RepeatingInputStream extends InputStream {
+
+    private static final long SAMPLE_BYTES = 8L << 20;
+
+    private final byte[] block;
+    private final byte[] tail;
+    private final long baselineHeap;
+
+    private byte[] current;
+    private int position;
+    private long blocksLeft;
+    private boolean inTail;
+    private long bytesRead;
+    private long nextSample = SAMPLE_BYTES;
+    private long peakHeapGrowth;
+
+    RepeatingInputStream(byte[] head, byte[] block, long repeats, byte[] tail) {
+        this.block = block;
+        this.tail = tail;
+        this.current = head;
+        this.blocksLeft = repeats;
+        this.baselineHeap = liveHeap();
+    }
+
+    @Override
+    public int read() {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        while (position == current.length) {
+            if (inTail) {
+                return -1;
+            }
+            if (blocksLeft > 0) {
+                blocksLeft--;
+                current = block;
+            } else {
+                current = tail;
+                inTail = true;
+            }
+            position = 0;
+        }
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current, position, buffer, offset, count);
+        position += count;
+        bytesRead += count;
+        if (bytesRead >= nextSample) {
+            nextSample += SAMPLE_BYTES;
+            peakHeapGrowth = Math.max(peakHeapGrowth, liveHeap() - baselineHeap);
+        }
+        return count;
+    }
+
+    long bytesRead() {
+        return bytesRead;
+    }
+
+    long peakHeapGrowth() {
+        return peakHeapGrowth;
+    }
+
+    private static long liveHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,94 @@
+package com.fitness.activityservice.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import com.fitness.activityservice.model.ActivityMetrics;
+
+class WorkoutStatsTest {
+
+    private static final Instant T0 = Instant.parse("2025-06-01T07:30:00Z");
+    // about 11.1m north per step
+    private static final double STEP = 0.0001;
+
+    private final WorkoutStats stats = new WorkoutStats(200);
+
+    @Test
+    void zoneTimeFollowsTheHeartRateAtTheStartOfEachGap() {
+        heartRate(0, 110); // 55% of max, zone 1
+        heartRate(5, 130); // 65%, zone 2
+        heartRate(10, 190); // 95%, zone 5
+        heartRate(15, 90); // below zone 1
+        heartRate(20, 90);
+
+        assertThat(stats.toMetrics())
+                .containsEntry("hrZone1Seconds", 5L)
+                .containsEntry("hrZone2Seconds", 5L)
+                .containsEntry("hrZone3Seconds", 0L)
+                .containsEntry("hrZone4Seconds", 0L)
+                .containsEntry("hrZone5Seconds", 5L)
+                .containsEntry("movingTimeSeconds", 20L);
+    }
+
+    @Test
+    void movingTimeSkipsStandingStillAndPauses() {
+        position(0, 0);
+        position(5, 1); // 2.2 m/s, moving
+        position(10, 1); // standing still
+        position(30, 2); // 20s gap is a pause
+        position(35, 3); // moving
+
+        assertThat(stats.toMetrics()).containsEntry("movingTimeSeconds", 10L);
+        assertThat(stats.getDurationMinutes()).isEqualTo(1);
+    }
+
+    @Test
+    void elevationGainIgnoresJitterBelowTheThreshold() {
+        double[] elevations = { 100, 101.5, 100.5, 101.9, 102.6, 101, 102.9 };
+        for (int i = 0; i < elevations.length; i++) {
+            stats.addSample(T0.plusSeconds(i), Double.NaN, Double.NaN, elevations[i], null, null, null);
+        }
+
+        assertThat(stats.toMetrics()).containsEntry(ActivityMetrics.ELEVATION_GAIN_M, 2.6);
+    }
+
+    @Test
+    void recordedDistanceIsPreferredOverPositions() {
+        stats.addSample(T0, 47.0, 8.0, Double.NaN, null, null, 0.0);
+        stats.addSample(T0.plusSeconds(5), 47.0 + STEP, 8.0, Double.NaN, null, null, 500.0);
+
+        assertThat(stats.getDistanceKm()).isEqualTo(0.5);
+        assertThat(stats.toMetrics())
+                .containsEntry(ActivityMetrics.DISTANCE_KM, 0.5)
+                .containsEntry(ActivityMetrics.PACE_SECONDS_PER_KM, 10.0);
+    }
+
+    @Test
+    void paceNeedsAMeaningfulDistance() {
+        position(0, 0);
+        position(5, 1);
+
+        assertThat(stats.toMetrics())
+                .containsKey(ActivityMetrics.DISTANCE_KM)
+                .doesNotContainKey(ActivityMetrics.PACE_SECONDS_PER_KM);
+    }
+
+    @Test
+    void samplesWithoutTimeLeaveItEmpty() {
+        stats.addSample(null, 47.0, 8.0, 400, 150, 80, null);
+
+        assertThat(stats.isEmpty()).isTrue();
+        assertThat(stats.getDurationMinutes()).isZero();
+    }
+
+    private void heartRate(int second, int heartRate) {
+        stats.addSample(T0.plusSeconds(second), Double.NaN, Double.NaN, Double.NaN, heartRate, null, null);
+    }
+
+    private void position(int second, int steps) {
+        stats.addSample(T0.plusSeconds(second), 47.0 + steps * STEP, 8.0, Double.NaN, null, null, null);
+    }
+}
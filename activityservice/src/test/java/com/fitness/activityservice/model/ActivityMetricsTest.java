@@ -0,0 +1,153 @@
+package com.fitness.activityservice.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class ActivityMetricsTest {
+
+    // what clients typically send in additionalMetrics
+    private static final Map<String, Object> RAW = Map.of(
+            "distance", 8.4,
+            "heartRate", 152,
+            "maxHeartRate", 178,
+            "pace", 330.5,
+            "elevationGain", 120.0,
+            "cadence", 172);
+
+    private final MappingMongoConverter converter = converter();
+
+    @Test
+    void mapsKnownNamesToTypedFields() {
+        ActivityMetrics metrics = ActivityMetrics.fromMap(RAW, 20, false);
+
+        assertThat(metrics.getDistanceKm()).isEqualTo(8.4);
+        assertThat(metrics.getAvgHeartRate()).isEqualTo(152);
+        assertThat(metrics.getPaceSecondsPerKm()).isEqualTo(330.5);
+        assertThat(metrics.getExtras()).isNull();
+        assertThat(metrics.toMap()).containsEntry(ActivityMetrics.DISTANCE_KM, 8.4)
+                .containsEntry(ActivityMetrics.AVG_CADENCE, 172);
+    }
+
+    @Test
+    void strictParsingRejectsWhatLenientParsingKeepsAsExtras() {
+        Map<String, Object> raw = Map.of("heartRate", 400, "mood", "great");
+
+        assertThatThrownBy(() -> ActivityMetrics.fromMap(raw, 20, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("avgHeartRate");
+        ActivityMetrics lenient = ActivityMetrics.fromMap(raw, 20, true);
+        assertThat(lenient.getAvgHeartRate()).isNull();
+        assertThat(lenient.getExtras()).containsEntry("heartRate", 400).containsEntry("mood", "great");
+    }
+
+    @Test
+    void extrasAreCapped() {
+        Map<String, Object> raw = new LinkedHashMap<>();
+        raw.put("a", 1);
+        raw.put("b", 2);
+
+        assertThatThrownBy(() -> ActivityMetrics.fromMap(raw, 1, false)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(ActivityMetrics.fromMap(raw, 1, true).getExtras()).containsOnlyKeys("a");
+    }
+
+    @Test
+    void typedDocumentIsSmallerThanTheLegacyMap() {
+        int legacy = bson(legacy()).getByteBuffer().remaining();
+        int typed = bson(typed()).getByteBuffer().remaining();
+
+        assertThat(typed).isLessThan(legacy);
+    }
+
+    @Test
+    void typedDocumentReadsBack() {
+        Activity read = converter.read(Activity.class, bson(typed()).decode(new DocumentCodec()));
+
+        assertThat(read.getMetrics()).isEqualTo(ActivityMetrics.fromMap(RAW, 20, false));
+        assertThat(read.getSchemaVersion()).isEqualTo(Activity.SCHEMA_VERSION);
+    }
+
+    // mvn test -Dbenchmark=true
+    // document size and mapping plus BSON encode/decode time, before and after typed metrics
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void sizeAndSerializationTime() {
+        int iterations = 200_000;
+        for (String name : new String[] { "legacy", "typed" }) {
+            Activity activity = name.equals("legacy") ? legacy() : typed();
+            for (int i = 0; i < iterations / 10; i++) {
+                converter.read(Activity.class, bson(activity).decode(new DocumentCodec()));
+            }
+            long writeNanos = 0;
+            long readNanos = 0;
+            int bytes = 0;
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                RawBsonDocument encoded = bson(activity);
+                long written = System.nanoTime();
+                converter.read(Activity.class, encoded.decode(new DocumentCodec()));
+                readNanos += System.nanoTime() - written;
+                writeNanos += written - start;
+                bytes = encoded.getByteBuffer().remaining();
+            }
+            log.info("{}: {} bytes/document, write {} us, read {} us", name, bytes,
+                    "%.2f".formatted(writeNanos / 1e3 / iterations), "%.2f".formatted(readNanos / 1e3 / iterations));
+        }
+    }
+
+    private RawBsonDocument bson(Activity activity) {
+        Document document = new Document();
+        converter.write(activity, document);
+        return new RawBsonDocument(document, new DocumentCodec());
+    }
+
+    private static Activity legacy() {
+        return base().legacyMetrics(RAW).build();
+    }
+
+    private static Activity typed() {
+        return base().metrics(ActivityMetrics.fromMap(RAW, 20, false)).schemaVersion(Activity.SCHEMA_VERSION).build();
+    }
+
+    private static Activity.ActivityBuilder base() {
+        LocalDateTime time = LocalDateTime.of(2025, 6, 1, 7, 30);
+        return Activity.builder()
+                .id("6650c1f2a8b4e03d9c1f2a8b")
+                .userId("3f1c2d4e-5a6b-7c8d-9e0f-1a2b3c4d5e6f")
+                .type(ActivityType.RUNNING)
+                .duration(45)
+                .caloriesBurnt(520)
+                .startTime(time)
+                .createdAt(time)
+                .updatedAt(time);
+    }
+
+    // wired like Spring Boot's MongoDataConfiguration, the simple types keep java.time values out of reflection
+    private static MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
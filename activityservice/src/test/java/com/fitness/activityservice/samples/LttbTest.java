@@ -0,0 +1,63 @@
+package com.fitness.activityservice.samples;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class LttbTest {
+
+    @Test
+    void thresholdAtOrAboveTheLengthKeepsEveryPoint() {
+        long[] x = { 0, 1_000, 2_000, 3_000, 4_000 };
+        double[] y = { 1, 5, 2, 4, 3 };
+
+        assertThat(Lttb.downsample(x, y, 5)).containsExactly(0, 1, 2, 3, 4);
+        assertThat(Lttb.downsample(x, y, 50)).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void thresholdBelowThreeKeepsEveryPoint() {
+        long[] x = { 0, 1_000, 2_000, 3_000 };
+        double[] y = { 1, 5, 2, 4 };
+
+        assertThat(Lttb.downsample(x, y, 2)).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    void keepsTheEndsAndASpikeThatDecimationWouldDrop() {
+        int length = 1_000;
+        long[] x = new long[length];
+        double[] y = new double[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = i * 1_000L;
+            y[i] = 100;
+        }
+        y[437] = 190;
+
+        int[] kept = Lttb.downsample(x, y, 20);
+
+        assertThat(kept).hasSize(20).contains(0, 437, 999);
+        assertThat(kept).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void unevenlySpacedPointsStayInOrder() {
+        int length = 500;
+        long[] x = new long[length];
+        double[] y = new double[length];
+        for (int i = 1; i < length; i++) {
+            // pauses every 50 samples
+            x[i] = x[i - 1] + (i % 50 == 0 ? 60_000 : 1_000);
+            y[i] = Math.sin(i / 10.0) * 20 + 140;
+        }
+
+        int[] kept = Lttb.downsample(x, y, 30);
+
+        assertThat(kept).hasSize(30).isSorted().doesNotHaveDuplicates();
+        assertThat(kept[0]).isZero();
+        assertThat(kept[29]).isEqualTo(length - 1);
+        assertThat(Arrays.stream(kept).allMatch(i -> i >= 0 && i < length)).isTrue();
+    }
+}
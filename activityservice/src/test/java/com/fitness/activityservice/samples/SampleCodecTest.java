@@ -0,0 +1,64 @@
+package com.fitness.activityservice.samples;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class SampleCodecTest {
+
+    @Test
+    void roundTripsRisingAndFallingSeries() {
+        long[] values = { 1200, 1210, 1190, -40, -45, 0, 7, 7, 7, 100_000_000_000L, -3 };
+
+        long[] decoded = SampleCodec.decode(SampleCodec.encode(values), values.length);
+
+        assertThat(decoded).containsExactly(values);
+    }
+
+    @Test
+    void smallDeltasTakeOneByte() {
+        // 100 zigzags to 200, two bytes; +1, -2 and +1 fit one byte each
+        byte[] encoded = SampleCodec.encode(new long[] { 100, 101, 99, 100 });
+
+        assertThat(encoded).hasSize(5);
+    }
+
+    @Test
+    void extremeDeltasTakeTenBytes() {
+        long[] values = { Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+
+        byte[] encoded = SampleCodec.encode(values);
+
+        // Long.MIN_VALUE zigzags to all ones, the deltas in between wrap around to +-1
+        assertThat(encoded).hasSize(12);
+        assertThat(SampleCodec.decode(encoded, values.length)).containsExactly(values);
+    }
+
+    @Test
+    void emptySeriesIsEmpty() {
+        assertThat(SampleCodec.encode(new long[0])).isEmpty();
+        assertThat(SampleCodec.decode(new byte[0], 0)).isEmpty();
+    }
+
+    @Test
+    void truncatedDataIsRejected() {
+        byte[] encoded = SampleCodec.encode(new long[] { 1, 2, 300 });
+
+        assertThatThrownBy(() -> SampleCodec.decode(Arrays.copyOf(encoded, encoded.length - 1), 3))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Corrupt sample data");
+    }
+
+    @Test
+    void varintLongerThanALongIsRejected() {
+        byte[] endless = new byte[11];
+        Arrays.fill(endless, (byte) 0x80);
+
+        assertThatThrownBy(() -> SampleCodec.decode(endless, 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Corrupt sample data");
+    }
+}
@@ -0,0 +1,68 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fitness.activityservice.model.Activity;
+
+class ActivityCursorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 6, 1, 7, 30, 15, 123_000_000);
+    private static final String ID = "665b1f0c2a4e3b1d9c8f7a61";
+
+    @Test
+    void roundTripsThroughTheToken() {
+        ActivityCursor cursor = ActivityCursor.after(Activity.builder().id(ID).startTime(START).build());
+
+        String token = cursor.encode();
+
+        assertThat(token).doesNotContain("=", "+", "/", ID);
+        assertThat(ActivityCursor.decode(token)).isEqualTo(new ActivityCursor(START, ID));
+    }
+
+    @Test
+    void roundTripsWithoutAStartTime() {
+        ActivityCursor cursor = new ActivityCursor(null, ID);
+
+        assertThat(ActivityCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    // not base64, no separator, an empty id, an unparseable startTime
+    @ParameterizedTest
+    @ValueSource(strings = { "not base64!", "bm8tc2VwYXJhdG9y", "MjAyNS0wNi0wMVQwNzozMHw", "eWVzdGVyZGF5fGEx" })
+    void rejectsMalformedTokens(String token) {
+        assertThatThrownBy(() -> ActivityCursor.decode(token))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    void nextPageContinuesBelowTheCursorAndThenIntoActivitiesWithoutAStartTime() {
+        Document criteria = new ActivityCursor(START, ID).nextPage().getCriteriaObject();
+
+        assertThat(criteria.getList("$or", Document.class)).containsExactly(
+                new Document("startTime", new Document("$lt", START)),
+                new Document("$and", List.of(new Document("startTime", START),
+                        new Document("_id", new Document("$lt", ID)))),
+                new Document("startTime", null));
+    }
+
+    @Test
+    void nextPageAmongActivitiesWithoutAStartTimeOnlyFollowsTheId() {
+        Document criteria = new ActivityCursor(null, ID).nextPage().getCriteriaObject();
+
+        assertThat(criteria.getList("$and", Document.class)).containsExactly(
+                new Document("startTime", null),
+                new Document("_id", new Document("$lt", ID)));
+    }
+}
@@ -0,0 +1,149 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityMetrics;
+import com.fitness.activityservice.model.ActivityType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ActivityExportServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ActivityService activityService = mock(ActivityService.class);
+    private final ActivityExportService exportService = new ActivityExportService(mongoTemplate, activityService,
+            new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry());
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(exportService, "cursorBatchSize", 100);
+        ReflectionTestUtils.setField(exportService, "flushEvery", 1);
+        when(activityService.mapToResponse(any(Activity.class))).thenAnswer(invocation -> {
+            Activity activity = invocation.getArgument(0);
+            ActivityResponse response = new ActivityResponse();
+            response.setId(activity.getId());
+            response.setUserId(activity.getUserId());
+            return response;
+        });
+    }
+
+    @Test
+    void exportsGzippedCsvWithAHeader() throws IOException {
+        cursor(List.of(activity("a1"), activity("a2")));
+
+        String csv = gunzip(export(ExportFormat.CSV, null));
+
+        assertThat(csv.lines()).hasSize(3);
+        assertThat(csv).startsWith("id,userId,type,startTime");
+        assertThat(csv.lines().skip(1))
+                .allSatisfy(row -> assertThat(row).contains(",RUNNING,2025-06-01T07:30,45,520,8.4,"));
+    }
+
+    @Test
+    void resumedCsvExportHasNoHeader() throws IOException {
+        cursor(List.of(activity("a2")));
+
+        assertThat(gunzip(export(ExportFormat.CSV, "a1"))).startsWith("a2,");
+    }
+
+    @Test
+    void exportsGzippedNdjson() throws IOException {
+        cursor(List.of(activity("a1"), activity("a2")));
+
+        assertThat(gunzip(export(ExportFormat.NDJSON, null)).lines())
+                .containsExactly("{\"id\":\"a1\",\"userId\":\"u1\"}", "{\"id\":\"a2\",\"userId\":\"u1\"}");
+    }
+
+    @Test
+    void csvQuotesValuesWithSeparators() throws IOException {
+        Activity activity = activity("a1");
+        activity.setUserId("last, first");
+        cursor(List.of(activity));
+
+        assertThat(gunzip(export(ExportFormat.CSV, null))).contains("a1,\"last, first\",");
+    }
+
+    @Test
+    void cursorFailureLeavesAnArchiveThatDoesNotDecompress() {
+        Iterator<Activity> failing = new Iterator<>() {
+            private int served;
+
+            @Override
+            public boolean hasNext() {
+                if (served == 1) {
+                    throw new DataAccessResourceFailureException("cursor lost");
+                }
+                return true;
+            }
+
+            @Override
+            public Activity next() {
+                return activity("a" + ++served);
+            }
+        };
+        when(mongoTemplate.stream(any(Query.class), eq(Activity.class)))
+                .thenReturn(StreamSupport.stream(Spliterators.spliteratorUnknownSize(failing, 0), false));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThatThrownBy(() -> exportService.export("u1", ExportFormat.NDJSON, null, out))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        // the row written before the failure was flushed, but there is no trailer after it
+        assertThat(out.size()).isPositive();
+        assertThatThrownBy(() -> gunzip(out.toByteArray())).isInstanceOf(EOFException.class);
+    }
+
+    private byte[] export(ExportFormat format, String after) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export("u1", format, after, out);
+        return out.toByteArray();
+    }
+
+    private void cursor(List<Activity> activities) {
+        when(mongoTemplate.stream(any(Query.class), eq(Activity.class))).thenReturn(activities.stream());
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Activity activity(String id) {
+        return Activity.builder()
+                .id(id)
+                .userId("u1")
+                .type(ActivityType.RUNNING)
+                .startTime(LocalDateTime.of(2025, 6, 1, 7, 30))
+                .duration(45)
+                .caloriesBurnt(520)
+                .metrics(ActivityMetrics.builder().distanceKm(8.4).build())
+                .build();
+    }
+}
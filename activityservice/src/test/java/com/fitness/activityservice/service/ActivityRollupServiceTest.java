@@ -0,0 +1,160 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityRollup;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.RollupPeriod;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ActivityRollupServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final ActivityRollupService service = new ActivityRollupService(mongoTemplate, new SimpleMeterRegistry());
+
+    @BeforeEach
+    void init() {
+        when(mongoTemplate.indexOps(ActivityRollup.class)).thenReturn(mock(IndexOperations.class));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityRollup.class)).thenReturn(bulk);
+        service.init();
+    }
+
+    @Test
+    void recordSumsABatchIntoOneIncrementPerBucket() {
+        // Wednesday and Friday of the same week and month
+        service.recordAll(List.of(
+                activity(LocalDateTime.of(2025, 6, 11, 7, 0), 30, 300),
+                activity(LocalDateTime.of(2025, 6, 13, 7, 0), 45, null)));
+
+        Map<Object, Document> increments = upserts().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().get("$inc", Document.class)));
+        assertThat(increments).containsOnlyKeys(
+                ActivityRollup.idOf("u1", RollupPeriod.WEEK, LocalDate.of(2025, 6, 9), ActivityType.RUNNING),
+                ActivityRollup.idOf("u1", RollupPeriod.MONTH, LocalDate.of(2025, 6, 1), ActivityType.RUNNING));
+        assertThat(increments.values()).allSatisfy(inc -> assertThat(inc)
+                .containsEntry("count", 2L)
+                .containsEntry("totalDuration", 75L)
+                .containsEntry("totalCaloriesBurnt", 300L));
+        verify(bulk).execute();
+    }
+
+    @Test
+    void rebuildOverwritesBucketsInPlaceFromTheDailyAggregation() {
+        aggregated(
+                day("RUNNING", "2025-06-11", 1, 30, 300),
+                day("RUNNING", "2025-06-13", 2, 90, 500),
+                day("RUNNING", "2025-07-01", 1, 20, 150));
+
+        int buckets = service.rebuild("u1");
+
+        assertThat(buckets).isEqualTo(4);
+        Document june = upserts()
+                .get(ActivityRollup.idOf("u1", RollupPeriod.MONTH, LocalDate.of(2025, 6, 1), ActivityType.RUNNING))
+                .get("$set", Document.class);
+        assertThat(june)
+                .containsEntry("count", 3L)
+                .containsEntry("totalDuration", 120L)
+                .containsEntry("totalCaloriesBurnt", 800L);
+        // nothing is cleared ahead of the rewrite
+        verify(mongoTemplate, never()).insert(any(), eq(ActivityRollup.class));
+        verify(mongoTemplate, times(1)).remove(any(Query.class), eq(ActivityRollup.class));
+    }
+
+    @Test
+    void rebuildRemovesOnlyStaleBucketsThatPredateIt() {
+        aggregated(day("RUNNING", "2025-06-11", 1, 30, 300));
+
+        service.rebuild("u1");
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(ActivityRollup.class));
+        List<Document> conditions = removed.getValue().getQueryObject().getList("$and", Document.class);
+        assertThat(conditions).hasSize(3);
+        assertThat(conditions.get(0)).isEqualTo(new Document("userId", "u1"));
+        assertThat(conditions.get(1).get("_id", Document.class).get("$nin", Collection.class))
+                .containsExactlyInAnyOrder(
+                        ActivityRollup.idOf("u1", RollupPeriod.WEEK, LocalDate.of(2025, 6, 9), ActivityType.RUNNING),
+                        ActivityRollup.idOf("u1", RollupPeriod.MONTH, LocalDate.of(2025, 6, 1), ActivityType.RUNNING));
+        assertThat(conditions.get(2).getList("$or", Document.class)).hasSize(2);
+    }
+
+    @Test
+    void rebuildAllWalksUsersFromAnAggregationCursor() {
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), eq(Activity.class), eq(Document.class)))
+                .thenReturn(Stream.of(new Document("_id", "u1"), new Document("_id", null), new Document("_id", "u2")));
+        aggregated();
+
+        service.rebuildAll();
+
+        verify(mongoTemplate, never()).findDistinct(any(Query.class), anyString(), eq(Activity.class), eq(String.class));
+        verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class), eq(Activity.class), eq(Document.class));
+    }
+
+    private void aggregated(Document... days) {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Activity.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(days), new Document()));
+    }
+
+    private Map<Object, Document> upserts() {
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, atLeastOnce()).upsert(queries.capture(), updates.capture());
+        Map<Object, Document> byId = new HashMap<>();
+        for (int i = 0; i < queries.getAllValues().size(); i++) {
+            byId.put(queries.getAllValues().get(i).getQueryObject().get("_id"),
+                    updates.getAllValues().get(i).getUpdateObject());
+        }
+        return byId;
+    }
+
+    private static Document day(String type, String day, int count, int duration, int calories) {
+        return new Document("_id", new Document("type", type).append("day", day))
+                .append("count", count)
+                .append("totalDuration", duration)
+                .append("totalCaloriesBurnt", calories);
+    }
+
+    private static Activity activity(LocalDateTime startTime, Integer duration, Integer calories) {
+        return Activity.builder()
+                .id("a-" + startTime)
+                .userId("u1")
+                .type(ActivityType.RUNNING)
+                .startTime(startTime)
+                .duration(duration)
+                .caloriesBurnt(calories)
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.ActivitySamplesRequest;
+import com.fitness.activityservice.dto.ActivitySamplesResponse;
+import com.fitness.activityservice.model.ActivitySamples;
+import com.fitness.activityservice.model.SeriesPreview;
+import com.fitness.activityservice.samples.SampleSet;
+
+class ActivitySampleServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ActivitySampleService service = new ActivitySampleService(mongoTemplate);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(service, "maxCount", 200_000);
+        ReflectionTestUtils.setField(service, "maxSeries", 8);
+        ReflectionTestUtils.setField(service, "previewPoints", 3);
+    }
+
+    @Test
+    void seriesWithoutOffsetsAreOneSecondApart() {
+        SampleSet samples = service.extract(request(null, Map.of("heartRate", Arrays.asList(120.0, null, 131.5))));
+
+        assertThat(samples.offsets()).containsExactly(0L, 1_000L, 2_000L);
+        // a dropout repeats the previous value
+        assertThat(samples.series().get("heartRate")).containsExactly(120.0, 120.0, 131.5);
+    }
+
+    @Test
+    void nullSeriesIsRejected() {
+        Map<String, List<Double>> series = new HashMap<>();
+        series.put("heartRate", null);
+
+        assertThatThrownBy(() -> service.extract(request(null, series)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Series heartRate has no samples");
+    }
+
+    @Test
+    void nullOffsetIsRejected() {
+        ActivityRequest request = request(Arrays.asList(0L, null, 2_000L),
+                Map.of("heartRate", List.of(120.0, 125.0, 131.0)));
+
+        assertThatThrownBy(() -> service.extract(request))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Sample offset 1 is missing");
+    }
+
+    @Test
+    void seriesBeyondTheLimitAreRejected() {
+        Map<String, List<Double>> series = new LinkedHashMap<>();
+        for (int i = 0; i < 9; i++) {
+            series.put("sensor" + i, List.of(1.0, 2.0));
+        }
+
+        assertThatThrownBy(() -> service.extract(request(null, series)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("At most 8 sample series");
+    }
+
+    @Test
+    void samplesThatCouldOutgrowADocumentAreRejected() {
+        // 8 columns of 200000 values could take 16MB once coded
+        Map<String, List<Double>> series = new LinkedHashMap<>();
+        for (int i = 0; i < 7; i++) {
+            series.put("sensor" + i, Collections.nCopies(200_000, 1.0));
+        }
+
+        assertThatThrownBy(() -> service.extract(request(null, series)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Too many samples");
+
+        series.remove("sensor6");
+        assertThat(service.extract(request(null, series)).size()).isEqualTo(200_000);
+    }
+
+    @Test
+    void previewKeepsTheOffsetsOfTheChosenPoints() {
+        SampleSet samples = service.extract(request(List.of(0L, 1_000L, 2_000L, 30_000L, 31_000L),
+                Map.of("heartRate", List.of(120.0, 121.0, 122.0, 170.0, 123.0))));
+
+        List<SeriesPreview> preview = service.preview(samples);
+
+        assertThat(preview).hasSize(1);
+        assertThat(preview.get(0).getOffsets()).containsExactly(0L, 30_000L, 31_000L);
+        assertThat(preview.get(0).getValues()).containsExactly(120.0, 170.0, 123.0);
+    }
+
+    @Test
+    void encodedSamplesDecodeToTheSameValues() {
+        SampleSet samples = service.extract(request(List.of(0L, 1_000L, 2_500L),
+                Map.of("speed", List.of(2.75, 3.1, 2.9), "heartRate", List.of(120.0, 125.0, 131.0))));
+        ActivitySamples encoded = service.encode("a1", "u1", samples);
+        when(mongoTemplate.findById("a1", ActivitySamples.class)).thenReturn(encoded);
+
+        ActivitySamplesResponse response = service.getSamples("a1");
+
+        assertThat(response.getOffsetsMillis()).containsExactly(0L, 1_000L, 2_500L);
+        assertThat(response.getSeries().get("speed")).containsExactly(2.75, 3.1, 2.9);
+        assertThat(response.getSeries().get("heartRate")).containsExactly(120.0, 125.0, 131.0);
+    }
+
+    private static ActivityRequest request(List<Long> offsets, Map<String, List<Double>> series) {
+        ActivitySamplesRequest samples = new ActivitySamplesRequest();
+        samples.setOffsetsMillis(offsets);
+        samples.setSeries(series);
+        ActivityRequest request = new ActivityRequest();
+        request.setUserId("u1");
+        request.setSamples(samples);
+        return request;
+    }
+}
@@ -0,0 +1,156 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.ActivityRepository;
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.IdempotencyRecord;
+import com.fitness.activityservice.model.IdempotencyRecord.Status;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+class ActivityServiceTest {
+
+    private final ActivityRepository activityRepository = mock(ActivityRepository.class);
+    private final UserValidationService userValidationService = mock(UserValidationService.class);
+    private final ActivityOutbox activityOutbox = mock(ActivityOutbox.class);
+    private final IdempotencyService idempotencyService = mock(IdempotencyService.class);
+    private final ActivitySampleService activitySampleService = mock(ActivitySampleService.class);
+    private final ActivityService activityService = new ActivityService(activityRepository,
+            mock(MongoTemplate.class), userValidationService, activityOutbox, new ObjectMapper(),
+            mock(QueryPlanInspector.class), mock(ActivityRollupService.class), Caffeine.newBuilder().build(),
+            idempotencyService, activitySampleService);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(activityService, "maxExtraMetrics", 20);
+        when(userValidationService.validateUserWithGrace("u1")).thenReturn(true);
+        when(activityRepository.insert(any(Activity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(idempotencyService.scope("u1", "k1")).thenReturn("u1:k1");
+        when(idempotencyService.hash(any())).thenReturn("h");
+    }
+
+    @Test
+    void newKeyIsReservedAndCompleted() {
+        when(idempotencyService.reserve(eq("u1:k1"), anyString(), eq("h"))).thenReturn(true);
+
+        ActivityResponse response = activityService.trackActivity(request(), "k1");
+
+        verify(activityRepository).insert(any(Activity.class));
+        verify(idempotencyService).complete("u1:k1", response.getId(), "h");
+    }
+
+    @Test
+    void completedKeyReplaysTheOriginalActivity() {
+        when(idempotencyService.find("u1:k1")).thenReturn(record(Status.COMPLETED, Instant.now()));
+        when(activityRepository.findById("a1")).thenReturn(Optional.of(saved("a1")));
+
+        ActivityResponse response = activityService.trackActivity(request(), "k1");
+
+        assertThat(response.getId()).isEqualTo("a1");
+        verify(activityRepository, never()).insert(any(Activity.class));
+    }
+
+    @Test
+    void sameKeyWithADifferentBodyIs422() {
+        IdempotencyRecord record = record(Status.COMPLETED, Instant.now());
+        when(idempotencyService.find("u1:k1")).thenReturn(record);
+        doThrow(new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY)).when(idempotencyService)
+                .checkSameRequest(record, "h");
+
+        assertThatThrownBy(() -> activityService.trackActivity(request(), "k1"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        verify(activityRepository, never()).insert(any(Activity.class));
+    }
+
+    @Test
+    void pendingKeyWithinItsLeaseIs409() {
+        IdempotencyRecord record = record(Status.PENDING, Instant.now());
+        when(idempotencyService.find("u1:k1")).thenReturn(record);
+        when(idempotencyService.isAbandoned(record)).thenReturn(false);
+
+        assertThatThrownBy(() -> activityService.trackActivity(request(), "k1"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    @Test
+    void abandonedKeyWithoutAnActivityIsTakenOver() {
+        IdempotencyRecord record = record(Status.PENDING, Instant.now().minusSeconds(60));
+        when(idempotencyService.find("u1:k1")).thenReturn(record);
+        when(idempotencyService.isAbandoned(record)).thenReturn(true);
+        when(activityRepository.findById("a1")).thenReturn(Optional.empty());
+        when(idempotencyService.takeOver(eq(record), anyString())).thenReturn(true);
+
+        ActivityResponse response = activityService.trackActivity(request(), "k1");
+
+        assertThat(response.getId()).isNotEqualTo("a1");
+        verify(idempotencyService, never()).reserve(anyString(), anyString(), anyString());
+        verify(idempotencyService).complete("u1:k1", response.getId(), "h");
+    }
+
+    @Test
+    void abandonedKeyWhoseActivityWasWrittenReplaysIt() {
+        IdempotencyRecord record = record(Status.PENDING, Instant.now().minusSeconds(60));
+        when(idempotencyService.find("u1:k1")).thenReturn(record);
+        when(idempotencyService.isAbandoned(record)).thenReturn(true);
+        when(activityRepository.findById("a1")).thenReturn(Optional.of(saved("a1")));
+
+        assertThat(activityService.trackActivity(request(), "k1").getId()).isEqualTo("a1");
+        verify(idempotencyService, never()).takeOver(any(), anyString());
+    }
+
+    @Test
+    void failedWriteReleasesTheKey() {
+        when(idempotencyService.reserve(eq("u1:k1"), anyString(), eq("h"))).thenReturn(true);
+        when(activityRepository.insert(any(Activity.class))).thenThrow(new IllegalStateException("mongo down"));
+
+        assertThatThrownBy(() -> activityService.trackActivity(request(), "k1"))
+                .isInstanceOf(IllegalStateException.class);
+        verify(idempotencyService).release("u1:k1");
+        verify(idempotencyService, never()).complete(anyString(), anyString(), anyString());
+    }
+
+    private static IdempotencyRecord record(Status status, Instant createdAt) {
+        return new IdempotencyRecord("u1:k1", "a1", "h", status, Date.from(createdAt));
+    }
+
+    private static Activity saved(String id) {
+        return Activity.builder().id(id).userId("u1").type(ActivityType.RUNNING).duration(30)
+                .startTime(LocalDateTime.of(2025, 6, 1, 7, 30)).build();
+    }
+
+    private static ActivityRequest request() {
+        ActivityRequest request = new ActivityRequest();
+        request.setUserId("u1");
+        request.setType(ActivityType.RUNNING);
+        request.setDuration(30);
+        request.setCaloriesBurnt(300);
+        return request;
+    }
+}
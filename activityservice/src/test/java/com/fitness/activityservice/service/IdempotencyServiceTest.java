@@ -0,0 +1,131 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.IdempotencyRecord;
+import com.fitness.activityservice.model.IdempotencyRecord.Status;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.result.UpdateResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class IdempotencyServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final IdempotencyService service = new IdempotencyService(mongoTemplate, Caffeine.newBuilder().build(),
+            new SimpleMeterRegistry(), new ObjectMapper().findAndRegisterModules());
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(service, "lease", Duration.ofSeconds(30));
+    }
+
+    @Test
+    void hashDependsOnTheBodyButNotOnMapOrder() {
+        Map<String, Object> forward = new LinkedHashMap<>();
+        forward.put("distanceKm", 5.0);
+        forward.put("avgHeartRate", 140);
+        Map<String, Object> reverse = new LinkedHashMap<>();
+        reverse.put("avgHeartRate", 140);
+        reverse.put("distanceKm", 5.0);
+
+        assertThat(service.hash(request(30, forward))).isEqualTo(service.hash(request(30, reverse)))
+                .hasSize(64);
+        assertThat(service.hash(request(31, forward))).isNotEqualTo(service.hash(request(30, forward)));
+    }
+
+    @Test
+    void differentBodyUnderTheSameKeyIs422() {
+        IdempotencyRecord record = record(Status.COMPLETED, "hash-a", Instant.now());
+
+        assertThatThrownBy(() -> service.checkSameRequest(record, "hash-b"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        assertThatCode(() -> service.checkSameRequest(record, "hash-a")).doesNotThrowAnyException();
+        // written before hashes were stored
+        assertThatCode(() -> service.checkSameRequest(record(null, null, Instant.now()), "hash-b"))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void onlyAPendingReservationPastItsLeaseIsAbandoned() {
+        Instant old = Instant.now().minusSeconds(60);
+
+        assertThat(service.isAbandoned(record(Status.PENDING, "h", old))).isTrue();
+        assertThat(service.isAbandoned(record(Status.PENDING, "h", Instant.now()))).isFalse();
+        assertThat(service.isAbandoned(record(Status.COMPLETED, "h", old))).isFalse();
+        assertThat(service.isAbandoned(record(null, null, old))).isFalse();
+    }
+
+    @Test
+    void reserveLosesToAnExistingKey() {
+        when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("dup"));
+
+        assertThat(service.reserve("u1:k1", "a2", "h")).isFalse();
+    }
+
+    @Test
+    void onlyOneRetryTakesOverAnAbandonedReservation() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(IdempotencyRecord.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        IdempotencyRecord abandoned = record(Status.PENDING, "h", Instant.now().minusSeconds(60));
+
+        assertThat(service.takeOver(abandoned, "a2")).isTrue();
+        assertThat(service.takeOver(abandoned, "a3")).isFalse();
+    }
+
+    @Test
+    void onlyCompletedKeysAreCached() {
+        when(mongoTemplate.findById("u1:k1", IdempotencyRecord.class))
+                .thenReturn(record(Status.PENDING, "h", Instant.now()));
+
+        service.find("u1:k1");
+        service.find("u1:k1");
+        verify(mongoTemplate, times(2)).findById("u1:k1", IdempotencyRecord.class);
+
+        service.complete("u1:k1", "a1", "h");
+        assertThat(service.find("u1:k1").getStatus()).isEqualTo(Status.COMPLETED);
+        verify(mongoTemplate, times(2)).findById("u1:k1", IdempotencyRecord.class);
+    }
+
+    private static IdempotencyRecord record(Status status, String hash, Instant createdAt) {
+        return new IdempotencyRecord("u1:k1", "a1", hash, status, Date.from(createdAt));
+    }
+
+    private static ActivityRequest request(int duration, Map<String, Object> metrics) {
+        ActivityRequest request = new ActivityRequest();
+        request.setUserId("u1");
+        request.setType(ActivityType.RUNNING);
+        request.setDuration(duration);
+        request.setAdditionalMetrics(metrics);
+        return request;
+    }
+}
@@ -0,0 +1,235 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.OutboxEvent;
+import com.fitness.activityservice.model.SeriesPreview;
+import com.fitness.eventcontract.ActivityEvent;
+
+class OutboxRelayTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final OutboxRelay relay = new OutboxRelay(mongoTemplate, rabbitTemplate);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(relay, "exchange", "fitness.exchange");
+        ReflectionTestUtils.setField(relay, "routingKey", "activity.tracking");
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        ReflectionTestUtils.setField(relay, "maxInFlight", 10);
+        ReflectionTestUtils.setField(relay, "batchTimeout", Duration.ofMillis(100));
+        ReflectionTestUtils.setField(relay, "gracePeriod", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(relay, "orphanTimeout", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(relay, "claimTimeout", Duration.ofSeconds(30));
+    }
+
+    @Test
+    void ackedEventsAreRemoved() {
+        outbox(List.of(event("a1", 5), event("a2", 5)));
+        saved("a1", "a2");
+        confirmAll(true);
+
+        relay.relay();
+
+        verify(rabbitTemplate, times(2)).convertAndSend(anyString(), anyString(), any(Object.class),
+                any(CorrelationData.class));
+        assertThat(removedIds()).containsExactly(List.of("a1", "a2"));
+    }
+
+    @Test
+    void nackedEventStaysInTheOutbox() {
+        outbox(List.of(event("a1", 5)));
+        saved("a1");
+        confirmAll(false);
+
+        relay.relay();
+
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(OutboxEvent.class));
+    }
+
+    @Test
+    void fullBatchesKeepDraining() {
+        outbox(List.of(event("a1", 5), event("a2", 5)), List.of(event("a3", 5)));
+        saved("a1", "a2", "a3");
+        confirmAll(true);
+
+        relay.relay();
+
+        assertThat(removedIds()).containsExactly(List.of("a1", "a2"), List.of("a3"));
+    }
+
+    @Test
+    void publishFailureStopsTheBatchAndTheDrain() {
+        outbox(List.of(event("a1", 5), event("a2", 5)), List.of(event("a3", 5)));
+        saved("a1", "a2", "a3");
+        doThrow(new AmqpException("connection lost")).when(rabbitTemplate)
+                .convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+
+        relay.relay();
+
+        verify(rabbitTemplate, times(1)).convertAndSend(anyString(), anyString(), any(Object.class),
+                any(CorrelationData.class));
+        verify(mongoTemplate, times(1)).updateMulti(any(Query.class), any(Update.class), eq(OutboxEvent.class));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(OutboxEvent.class));
+    }
+
+    @Test
+    void missingConfirmsStopPublishingAtTheInFlightLimit() {
+        ReflectionTestUtils.setField(relay, "maxInFlight", 1);
+        outbox(List.of(event("a1", 5), event("a2", 5)));
+        saved("a1", "a2");
+        // the broker never confirms
+
+        relay.relay();
+
+        verify(rabbitTemplate, times(1)).convertAndSend(anyString(), anyString(), any(Object.class),
+                any(CorrelationData.class));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(OutboxEvent.class));
+    }
+
+    @Test
+    void missingConfirmsShareOneBatchDeadline() {
+        ReflectionTestUtils.setField(relay, "batchSize", 5);
+        ReflectionTestUtils.setField(relay, "batchTimeout", Duration.ofMillis(200));
+        outbox(List.of(event("a1", 5), event("a2", 5), event("a3", 5), event("a4", 5), event("a5", 5)));
+        saved("a1", "a2", "a3", "a4", "a5");
+        // the broker never confirms
+
+        long start = System.nanoTime();
+        relay.relay();
+
+        // waiting per event would take five times the deadline
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(600));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(OutboxEvent.class));
+    }
+
+    @Test
+    void batchDeadlineStopsSendingAndTheDrain() {
+        ReflectionTestUtils.setField(relay, "batchTimeout", Duration.ofMillis(500));
+        outbox(List.of(event("a1", 5), event("a2", 5)), List.of(event("a3", 5)));
+        saved("a1", "a2", "a3");
+        doAnswer(invocation -> {
+            // a slow broker uses up the whole batch deadline
+            Thread.sleep(600);
+            CorrelationData correlationData = invocation.getArgument(3);
+            correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class),
+                any(CorrelationData.class));
+
+        relay.relay();
+
+        verify(rabbitTemplate, times(1)).convertAndSend(anyString(), anyString(), any(Object.class),
+                any(CorrelationData.class));
+        verify(mongoTemplate, times(1)).updateMulti(any(Query.class), any(Update.class), eq(OutboxEvent.class));
+        assertThat(removedIds()).containsExactly(List.of("a1"));
+    }
+
+    @Test
+    void batchTimeoutMustEndInsideTheLease() {
+        ReflectionTestUtils.setField(relay, "batchTimeout", Duration.ofSeconds(30));
+
+        assertThatThrownBy(relay::init).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("batch-timeout");
+    }
+
+    @Test
+    void eventOfAFailedWriteIsDroppedOnceOrphaned() {
+        outbox(List.of(event("a1", 120), event("a2", 5)));
+        saved();
+
+        relay.relay();
+
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class),
+                any(CorrelationData.class));
+        assertThat(removedIds()).containsExactly(List.of("a1"));
+    }
+
+    @Test
+    void samplePreviewIsPublishedWithItsOffsets() {
+        OutboxEvent event = event("a1", 5);
+        event.getPayload().setSamplePreview(List.of(
+                new SeriesPreview("heartRate", new long[] { 0, 35_000, 36_000 }, new double[] { 120, 168, 131 })));
+        outbox(List.of(event));
+        saved("a1");
+        confirmAll(true);
+
+        relay.relay();
+
+        ArgumentCaptor<ActivityEvent> published = ArgumentCaptor.forClass(ActivityEvent.class);
+        verify(rabbitTemplate).convertAndSend(anyString(), anyString(), published.capture(),
+                any(CorrelationData.class));
+        assertThat(published.getValue().getSamplePreview()).containsEntry("heartRate", List.of(120.0, 168.0, 131.0));
+        assertThat(published.getValue().getSamplePreviewOffsets())
+                .containsEntry("heartRate", List.of(0L, 35_000L, 36_000L));
+    }
+
+    // each batch is read twice, once for the candidate ids and once after claiming them
+    @SafeVarargs
+    private void outbox(List<OutboxEvent>... batches) {
+        OngoingStubbing<List<OutboxEvent>> reads = when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class)));
+        for (List<OutboxEvent> batch : batches) {
+            reads = reads.thenReturn(batch, batch);
+        }
+        reads.thenReturn(List.of());
+    }
+
+    private void saved(String... activityIds) {
+        when(mongoTemplate.find(any(Query.class), eq(Activity.class)))
+                .thenReturn(Arrays.stream(activityIds).map(id -> Activity.builder().id(id).build()).toList());
+    }
+
+    private void confirmAll(boolean ack) {
+        doAnswer(invocation -> {
+            CorrelationData correlationData = invocation.getArgument(3);
+            correlationData.getFuture().complete(new CorrelationData.Confirm(ack, null));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class),
+                any(CorrelationData.class));
+    }
+
+    private List<Object> removedIds() {
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, atLeastOnce()).remove(removed.capture(), eq(OutboxEvent.class));
+        return removed.getAllValues().stream()
+                .map(query -> ((Document) query.getQueryObject().get("_id")).get("$in"))
+                .toList();
+    }
+
+    private static OutboxEvent event(String id, int ageSeconds) {
+        Activity payload = Activity.builder().id(id).userId("u1").build();
+        return new OutboxEvent(id, payload, LocalDateTime.now().minusSeconds(ageSeconds), null, null);
+    }
+}
@@ -0,0 +1,154 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.ActivityRepository;
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class TrackActivityThroughputTest {
+
+    // user-service round trip, outbox insert and activity insert as seen from the service
+    private static final Duration VALIDATION_LATENCY = Duration.ofMillis(20);
+    private static final Duration OUTBOX_LATENCY = Duration.ofMillis(2);
+    private static final Duration INSERT_LATENCY = Duration.ofMillis(5);
+
+    // Tomcat's default server.tomcat.threads.max
+    private static final int PLATFORM_THREADS = 200;
+    private static final Duration P99_TARGET = Duration.ofMillis(100);
+
+    // stubOnly keeps Mockito from recording every call made under load, so calls are checked through answers
+    private final ActivityRepository activityRepository = mock(ActivityRepository.class, withSettings().stubOnly());
+    private final UserValidationService userValidationService = mock(UserValidationService.class,
+            withSettings().stubOnly());
+    private final ActivityOutbox activityOutbox = mock(ActivityOutbox.class, withSettings().stubOnly());
+    private final ActivityService activityService = new ActivityService(activityRepository,
+            mock(MongoTemplate.class), userValidationService, activityOutbox, new ObjectMapper(),
+            mock(QueryPlanInspector.class), mock(ActivityRollupService.class, withSettings().stubOnly()),
+            Caffeine.newBuilder().maximumSize(10_000).build(), mock(IdempotencyService.class),
+            mock(ActivitySampleService.class, withSettings().stubOnly()));
+
+    @Test
+    void invalidUserWritesNothing() {
+        AtomicInteger inserts = new AtomicInteger();
+        when(userValidationService.validateUserWithGrace("u1")).thenReturn(false);
+        when(activityRepository.insert(any(Activity.class))).thenAnswer(invocation -> {
+            inserts.incrementAndGet();
+            return invocation.getArgument(0);
+        });
+
+        assertThatThrownBy(() -> activityService.trackActivity(request("u1")))
+                .hasMessageContaining("Invalid user ID");
+        assertThat(inserts).hasValue(0);
+    }
+
+    // mvn test -Dbenchmark=true
+    // the blocking trackActivity path POST /api/activities runs on the request thread, on Tomcat's
+    // platform pool and on virtual threads; highest throughput each keeps under the p99 target
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void throughputAtLatencyTarget() throws Exception {
+        when(userValidationService.validateUserWithGrace(anyString())).thenAnswer(sleep(VALIDATION_LATENCY, true));
+        when(activityRepository.insert(any(Activity.class))).thenAnswer(invocation -> {
+            Thread.sleep(INSERT_LATENCY);
+            return invocation.getArgument(0);
+        });
+        doAnswer(sleep(OUTBOX_LATENCY, null)).when(activityOutbox).stage(any());
+
+        double platform = 0;
+        double virtual = 0;
+        for (int concurrency : new int[] { 50, 200, 800, 2000 }) {
+            try (ExecutorService pool = Executors.newFixedThreadPool(PLATFORM_THREADS)) {
+                platform = Math.max(platform, run("platform", pool, concurrency));
+            }
+            try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+                virtual = Math.max(virtual, run("virtual", pool, concurrency));
+            }
+        }
+        log.info("at p99 <= {} ms: platform {} req/s, virtual {} req/s",
+                P99_TARGET.toMillis(), Math.round(platform), Math.round(virtual));
+        assertThat(virtual).isGreaterThanOrEqualTo(platform);
+    }
+
+    // closed loop: each client sends its next request once the previous one returns;
+    // returns the throughput, or 0 when the p99 misses the target
+    private double run(String name, ExecutorService requestThreads, int concurrency) throws Exception {
+        Duration window = Duration.ofSeconds(3);
+        List<List<Long>> latencies = new ArrayList<>();
+        List<Future<?>> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        long deadline = start + window.toNanos();
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                List<Long> own = new ArrayList<>();
+                latencies.add(own);
+                String userId = "u" + c;
+                clients.add(clientThreads.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long sent = System.nanoTime();
+                        requestThreads.submit(() -> activityService.trackActivity(request(userId))).get();
+                        own.add(System.nanoTime() - sent);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> all = new ArrayList<>();
+        latencies.forEach(all::addAll);
+        Collections.sort(all);
+        double throughput = all.size() / seconds;
+        long p50 = all.get(all.size() / 2) / 1_000_000;
+        long p99 = all.get((int) (all.size() * 0.99)) / 1_000_000;
+        log.info("{}, {} clients: {} req/s, p50 {} ms, p99 {} ms",
+                name, concurrency, Math.round(throughput), p50, p99);
+        return p99 <= P99_TARGET.toMillis() ? throughput : 0;
+    }
+
+    private static Answer<Object> sleep(Duration latency, Object result) {
+        return _ -> {
+            Thread.sleep(latency);
+            return result;
+        };
+    }
+
+    private static ActivityRequest request(String userId) {
+        ActivityRequest request = new ActivityRequest();
+        request.setUserId(userId);
+        request.setType(ActivityType.RUNNING);
+        request.setDuration(30);
+        request.setCaloriesBurnt(300);
+        return request;
+    }
+}
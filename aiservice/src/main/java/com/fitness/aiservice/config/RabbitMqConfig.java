@@ -10,6 +10,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.fitness.eventcontract.ActivityEventMessageConverter;
+
 @Configuration
 public class RabbitMqConfig {
 
@@ -37,8 +39,9 @@ public class RabbitMqConfig {
         return BindingBuilder.bind(activityQueue).to(activityExchange).with(routingKey);
     }
 
+    // activity events arrive as Smile, JSON from older publishers is still read
     @Bean
     public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+        return new ActivityEventMessageConverter(new Jackson2JsonMessageConverter());
     }
 }
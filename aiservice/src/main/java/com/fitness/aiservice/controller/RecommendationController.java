@@ -6,6 +6,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.fitness.aiservice.model.Recommendation;
@@ -21,8 +22,9 @@ public class RecommendationController {
     private final RecommendationService recommendationService;
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Recommendation>> getUserRecommendation(@PathVariable String userId) {
-        return ResponseEntity.ok(recommendationService.getUserRecommendation(userId));
+    public ResponseEntity<List<Recommendation>> getUserRecommendation(@PathVariable String userId,
+            @RequestParam(required = false) List<String> fields) {
+        return ResponseEntity.ok(recommendationService.getUserRecommendation(userId, fields));
     }
 
     @GetMapping("/activity/{activityId}")
@@ -7,12 +7,15 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.Builder;
 import lombok.Data;
 
 @Document(collection = "recommendations")
 @Data
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Recommendation {
     @Id
     private String id;
@@ -4,14 +4,16 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fitness.aiservice.model.Activity;
 import com.fitness.aiservice.model.Recommendation;
+import com.fitness.eventcontract.ActivityEvent;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,7 +25,7 @@ public class ActivityAIService {
 
     private final GeminiService geminiService;
 
-    public Recommendation generateRecommendation(Activity activity) {
+    public Recommendation generateRecommendation(ActivityEvent activity) {
         String prompt = createPromptForActivity(activity);
         String response = geminiService.getAnswer(prompt);
         log.info("Response from AI: {}", response);
@@ -31,7 +33,7 @@ public class ActivityAIService {
         return processAIResponse(activity, response);
     }
 
-    private Recommendation processAIResponse(Activity activity, String response) {
+    private Recommendation processAIResponse(ActivityEvent activity, String response) {
         try {
             ObjectMapper objectMapper = new ObjectMapper();
             // Assuming the response JSON structure matches the Recommendation class
@@ -76,7 +78,7 @@ public class ActivityAIService {
         }
     }
 
-    private Recommendation createDefaultRecommendation(Activity activity) {
+    private Recommendation createDefaultRecommendation(ActivityEvent activity) {
         return Recommendation.builder()
                 .activityId(activity.getId())
                 .userId(activity.getUserId())
@@ -131,7 +133,7 @@ public class ActivityAIService {
         }
     }
 
-    private String createPromptForActivity(Activity activity) {
+    private String createPromptForActivity(ActivityEvent activity) {
         return String.format("""
                 Analyze this fitness activity and provide detailed recommendations in the following EXACT JSON format:
                 {
@@ -164,6 +166,7 @@ public class ActivityAIService {
                 Duration (minutes): %d
                 Calories burned: %d
                 Additional Metrics: %s
+                Sample preview (downsampled points of each recorded series as elapsed h:mm:ss=value, not evenly spaced): %s
 
                 Provide detailed analysis focusing on performance, improvements, next workout suggestions, and safety tips.
                 Ensure the response is strictly in the specified JSON format without any additional text or explanation.
@@ -171,7 +174,49 @@ public class ActivityAIService {
                 activity.getType(),
                 activity.getDuration(),
                 activity.getCaloriesBurnt(),
-                activity.getAdditionalMetrics() != null ? activity.getAdditionalMetrics().toString() : "None"
+                formatMetrics(activity.getMetrics()),
+                formatSamplePreview(activity.getSamplePreview(), activity.getSamplePreviewOffsets())
         );
     }
+
+    // one "name: value" per line reads better in the prompt than Map.toString()
+    private String formatMetrics(Map<String, Object> metrics) {
+        if (metrics == null || metrics.isEmpty()) {
+            return "None";
+        }
+        StringBuilder formatted = new StringBuilder();
+        metrics.forEach((name, value) -> formatted.append("\n- ").append(name).append(": ").append(value));
+        return formatted.toString();
+    }
+
+    // one decimal is enough, the preview is there for the shape of the series
+    private String formatSamplePreview(Map<String, List<Double>> samplePreview,
+            Map<String, List<Long>> samplePreviewOffsets) {
+        if (samplePreview == null || samplePreview.isEmpty()) {
+            return "None";
+        }
+        StringBuilder formatted = new StringBuilder();
+        samplePreview.forEach((name, values) -> {
+            // events from before the offsets were added carry the values alone
+            List<Long> offsets = samplePreviewOffsets != null ? samplePreviewOffsets.get(name) : null;
+            if (offsets != null && offsets.size() != values.size()) {
+                offsets = null;
+            }
+            formatted.append("\n- ").append(name).append(":");
+            for (int i = 0; i < values.size(); i++) {
+                formatted.append(' ');
+                if (offsets != null) {
+                    formatted.append(elapsed(offsets.get(i))).append('=');
+                }
+                formatted.append(Math.round(values.get(i) * 10) / 10.0);
+            }
+        });
+        return formatted.toString();
+    }
+
+    // h:mm:ss since the first sample
+    private static String elapsed(long offsetMillis) {
+        long seconds = offsetMillis / 1000;
+        return String.format(Locale.ROOT, "%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
 }
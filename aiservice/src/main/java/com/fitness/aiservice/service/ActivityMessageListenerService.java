@@ -3,8 +3,8 @@ package com.fitness.aiservice.service;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Service;
 
-import com.fitness.aiservice.model.Activity;
 import com.fitness.aiservice.model.Recommendation;
+import com.fitness.eventcontract.ActivityEvent;
 import com.fitness.aiservice.repository.RecommendationRepository;
 
 import lombok.RequiredArgsConstructor;
@@ -19,7 +19,7 @@ public class ActivityMessageListenerService {
     private final RecommendationRepository recommendationRepository;
 
     @RabbitListener(queues = "${rabbitmq.queue.name}")
-    public void processActivity(Activity activity) {
+    public void processActivity(ActivityEvent activity) {
         log.info("Received activity: {}", activity.getId());
         Recommendation recommendation = activityAIService.generateRecommendation(activity);
         recommendationRepository.save(recommendation);
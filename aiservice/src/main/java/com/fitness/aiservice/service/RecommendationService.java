@@ -1,8 +1,14 @@
 package com.fitness.aiservice.service;
 
 import java.util.List;
+import java.util.Set;
 
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.fitness.aiservice.model.Recommendation;
 import com.fitness.aiservice.repository.RecommendationRepository;
@@ -13,14 +19,38 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class RecommendationService {
 
+    // fields a client may ask for with ?fields=
+    private static final Set<String> SELECTABLE_FIELDS = Set.of(
+            "id", "activityId", "userId", "activityType", "recommendation",
+            "improvements", "suggestions", "safety", "createdAt");
+
     private final RecommendationRepository recommendationRepository;
+    private final MongoTemplate mongoTemplate;
 
     public List<Recommendation> getUserRecommendation(String userId) {
         return recommendationRepository.findByUserId(userId);
     }
 
+    // only the requested fields are read from Mongo and serialized
+    public List<Recommendation> getUserRecommendation(String userId, List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return getUserRecommendation(userId);
+        }
+
+        Query query = Query.query(Criteria.where("userId").is(userId));
+        for (String field : fields) {
+            if (!SELECTABLE_FIELDS.contains(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + field);
+            }
+            query.fields().include(field);
+        }
+        return mongoTemplate.find(query, Recommendation.class);
+    }
+
     public Recommendation getActivityRecommendation(String activityId) {
         return recommendationRepository.findByActivityId(activityId)
-                .orElseThrow(() -> new RuntimeException("Recommendation not found for activity with Id: " + activityId));
+                // 404 while the recommendation is still being generated, the gateway reports it as pending
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Recommendation not found for activity with Id: " + activityId));
     }
 }
@@ -0,0 +1,55 @@
+package com.fitness.clientsupport.httpclient;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.ClientHttpConnectorAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * One pooled, instrumented Reactor Netty connector per service. Runs before Boot's own
+ * connector auto-configuration, so WebClient.Builder customizers pick this one up too.
+ */
+@AutoConfiguration(before = ClientHttpConnectorAutoConfiguration.class)
+@ConditionalOnClass({ HttpClient.class, ReactorClientHttpConnector.class })
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientAutoConfiguration {
+
+    // pool gauges and acquire timings are published as reactor.netty.connection.provider.*
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnMissingBean
+    public ConnectionProvider httpConnectionProvider(HttpClientProperties properties) {
+        return ConnectionProvider.builder("http-client")
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireMaxCount(properties.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(properties.getPendingAcquireTimeout())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .maxLifeTime(properties.getMaxLifeTime())
+                .evictInBackground(properties.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ReactorClientHttpConnector httpClientConnector(ConnectionProvider httpConnectionProvider,
+            HttpClientProperties properties) {
+        HttpClient httpClient = HttpClient.create(httpConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .keepAlive(true)
+                .responseTimeout(properties.getResponseTimeout())
+                // uri tag collapsed to avoid one meter per activity id
+                .metrics(true, _ -> "/");
+        if (properties.isHttp2()) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+        return new ReactorClientHttpConnector(httpClient);
+    }
+}
@@ -0,0 +1,42 @@
+package com.fitness.clientsupport.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One load-balanced call, carried in the request attributes. The load-balancer lifecycle only
+ * reports success and failure, so whoever owns the call cancels it here to give back the
+ * outstanding slot it took.
+ */
+public final class InFlightRequest {
+
+    public static final String ATTRIBUTE = InFlightRequest.class.getName();
+
+    // once cancelled, a late start or completion is not counted
+    private static final InstanceStats CANCELLED = new InstanceStats(1);
+
+    private final AtomicReference<InstanceStats> running = new AtomicReference<>();
+
+    void started(InstanceStats stats) {
+        stats.requestStarted();
+        if (!running.compareAndSet(null, stats)) {
+            stats.requestFinished();
+        }
+    }
+
+    // false when cancel already released the slot
+    boolean finished() {
+        InstanceStats stats = running.get();
+        if (stats == null || stats == CANCELLED || !running.compareAndSet(stats, null)) {
+            return false;
+        }
+        stats.requestFinished();
+        return true;
+    }
+
+    public void cancel() {
+        InstanceStats stats = running.getAndSet(CANCELLED);
+        if (stats != null && stats != CANCELLED) {
+            stats.requestFinished();
+        }
+    }
+}
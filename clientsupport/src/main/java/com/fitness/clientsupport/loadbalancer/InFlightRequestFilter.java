@@ -0,0 +1,26 @@
+package com.fitness.clientsupport.loadbalancer;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Outermost WebClient filter: a call cancelled by the caller, e.g. by a {@code timeout()},
+ * never reaches the load-balancer lifecycle, so it is released here.
+ */
+public class InFlightRequestFilter implements ExchangeFilterFunction {
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            InFlightRequest inFlight = new InFlightRequest();
+            ClientRequest tracked = ClientRequest.from(request)
+                    .attribute(InFlightRequest.ATTRIBUTE, inFlight)
+                    .build();
+            return next.exchange(tracked).doOnCancel(inFlight::cancel);
+        });
+    }
+}
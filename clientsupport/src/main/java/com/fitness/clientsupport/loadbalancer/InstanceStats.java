@@ -0,0 +1,66 @@
+package com.fitness.clientsupport.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recent latency and load of a single service instance, as seen from this process.
+ */
+public class InstanceStats {
+
+    private final long decayNanos;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private double ewmaLatencyNanos;
+    private long lastUpdateNanos = System.nanoTime();
+    private volatile long ejectedUntilNanos;
+
+    public InstanceStats(long decayNanos) {
+        this.decayNanos = decayNanos;
+    }
+
+    public void requestStarted() {
+        outstanding.incrementAndGet();
+    }
+
+    public void requestFinished() {
+        outstanding.decrementAndGet();
+    }
+
+    public synchronized void recordLatency(long latencyNanos) {
+        long now = System.nanoTime();
+        double weight = Math.exp(-(double) (now - lastUpdateNanos) / decayNanos);
+        ewmaLatencyNanos = ewmaLatencyNanos * weight + latencyNanos * (1 - weight);
+        lastUpdateNanos = now;
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    public void recordFailure(int failureThreshold, long ejectionNanos) {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            ejectedUntilNanos = System.nanoTime() + ejectionNanos;
+            consecutiveFailures.set(0);
+        }
+    }
+
+    public boolean isEjected() {
+        return ejectedUntilNanos - System.nanoTime() > 0;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    // latency decays towards zero while the instance is idle, so a slow spike is eventually forgiven
+    public synchronized double getLatencyMillis() {
+        double weight = Math.exp(-(double) (System.nanoTime() - lastUpdateNanos) / decayNanos);
+        return ewmaLatencyNanos * weight / 1_000_000;
+    }
+
+    // lower is better
+    public double score() {
+        return (getLatencyMillis() + 1) * (getOutstanding() + 1);
+    }
+}
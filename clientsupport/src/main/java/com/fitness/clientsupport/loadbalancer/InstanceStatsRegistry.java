@@ -0,0 +1,144 @@
+package com.fitness.clientsupport.loadbalancer;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Feeds request outcomes from every load-balanced call back into per-instance stats.
+ */
+@RequiredArgsConstructor
+public class InstanceStatsRegistry implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    @Value("${loadbalancer.latency-aware.decay:10s}")
+    private Duration decay;
+
+    @Value("${loadbalancer.latency-aware.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${loadbalancer.latency-aware.ejection-time:30s}")
+    private Duration ejectionTime;
+
+    public InstanceStats statsFor(ServiceInstance instance) {
+        return stats.computeIfAbsent(key(instance), _ -> register(instance));
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (lbResponse.getServer() == null) {
+            return;
+        }
+        if (request.getContext() instanceof TimedRequestContext timedContext) {
+            timedContext.setRequestStartTime(System.nanoTime());
+        }
+        InstanceStats instanceStats = statsFor(lbResponse.getServer());
+        InFlightRequest inFlight = inFlight(request.getContext());
+        if (inFlight != null) {
+            inFlight.started(instanceStats);
+        } else {
+            instanceStats.requestStarted();
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || lbResponse.getServer() == null
+                || completionContext.status() == CompletionContext.Status.DISCARD) {
+            return;
+        }
+
+        Object context = completionContext.getLoadBalancerRequest().getContext();
+        InstanceStats instanceStats = statsFor(lbResponse.getServer());
+        InFlightRequest inFlight = inFlight(context);
+        if (inFlight == null) {
+            instanceStats.requestFinished();
+        } else if (!inFlight.finished()) {
+            // already cancelled and released
+            return;
+        }
+
+        if (context instanceof TimedRequestContext timedContext && timedContext.getRequestStartTime() > 0) {
+            instanceStats.recordLatency(System.nanoTime() - timedContext.getRequestStartTime());
+        }
+
+        if (isFailure(completionContext)) {
+            instanceStats.recordFailure(failureThreshold, ejectionTime.toNanos());
+        } else {
+            instanceStats.recordSuccess();
+        }
+    }
+
+    private boolean isFailure(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        if (completionContext.status() == CompletionContext.Status.FAILED) {
+            return true;
+        }
+        return completionContext.getClientResponse() instanceof ResponseData responseData
+                && responseData.getHttpStatus() != null
+                && responseData.getHttpStatus().is5xxServerError();
+    }
+
+    private static InFlightRequest inFlight(Object context) {
+        if (context instanceof RequestDataContext dataContext) {
+            RequestData requestData = dataContext.getClientRequest();
+            if (requestData != null && requestData.getAttributes() != null
+                    && requestData.getAttributes().get(InFlightRequest.ATTRIBUTE) instanceof InFlightRequest inFlight) {
+                return inFlight;
+            }
+        }
+        return null;
+    }
+
+    private InstanceStats register(ServiceInstance instance) {
+        InstanceStats instanceStats = new InstanceStats(decay.toNanos());
+        String serviceId = instance.getServiceId();
+        String instanceId = instanceId(instance);
+
+        Gauge.builder("loadbalancer.instance.score", instanceStats, InstanceStats::score)
+                .tags("service", serviceId, "instance", instanceId)
+                .register(meterRegistry);
+        Gauge.builder("loadbalancer.instance.latency", instanceStats, InstanceStats::getLatencyMillis)
+                .tags("service", serviceId, "instance", instanceId)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("loadbalancer.instance.outstanding", instanceStats, InstanceStats::getOutstanding)
+                .tags("service", serviceId, "instance", instanceId)
+                .register(meterRegistry);
+        Gauge.builder("loadbalancer.instance.ejected", instanceStats, s -> s.isEjected() ? 1 : 0)
+                .tags("service", serviceId, "instance", instanceId)
+                .register(meterRegistry);
+        return instanceStats;
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + "/" + instanceId(instance);
+    }
+
+    private static String instanceId(ServiceInstance instance) {
+        return instance.getInstanceId() != null
+                ? instance.getInstanceId()
+                : instance.getHost() + ":" + instance.getPort();
+    }
+}
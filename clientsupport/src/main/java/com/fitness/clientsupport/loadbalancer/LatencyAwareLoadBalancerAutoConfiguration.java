@@ -0,0 +1,48 @@
+package com.fitness.clientsupport.loadbalancer;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Makes the latency-aware balancer the default for every lb:// client of a service
+ * that has clientsupport on its classpath.
+ */
+@AutoConfiguration
+@ConditionalOnClass(LoadBalancerClientFactory.class)
+@ConditionalOnProperty(prefix = "loadbalancer.latency-aware", name = "enabled", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class LatencyAwareLoadBalancerAutoConfiguration {
+
+    @Bean
+    public InstanceStatsRegistry instanceStatsRegistry(MeterRegistry meterRegistry) {
+        return new InstanceStatsRegistry(meterRegistry);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(WebClient.class)
+    static class WebClientInFlightConfiguration {
+
+        // first in the chain, outside the load-balancer filter, so it sees the caller's cancel
+        @Bean
+        static BeanPostProcessor inFlightRequestFilterPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof WebClient.Builder builder) {
+                        builder.filters(filters -> filters.add(0, new InFlightRequestFilter()));
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.fitness.clientsupport.httpclient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.ClientHttpConnectorAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+
+import reactor.netty.resources.ConnectionProvider;
+
+class HttpClientAutoConfigurationTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(HttpClientAutoConfiguration.class,
+                    ClientHttpConnectorAutoConfiguration.class));
+
+    @Test
+    void providesOneSharedConnector() {
+        runner.run(context -> {
+            assertThat(context).hasSingleBean(ConnectionProvider.class);
+            assertThat(context).hasSingleBean(ClientHttpConnector.class);
+            assertThat(context).getBean(ClientHttpConnector.class).isInstanceOf(ReactorClientHttpConnector.class);
+            assertThat(context.getBean(ConnectionProvider.class).name()).isEqualTo("http-client");
+        });
+    }
+
+    @Test
+    void bindsHttpClientProperties() {
+        runner.withPropertyValues("http.client.max-connections=50", "http.client.response-timeout=60s",
+                "http.client.http2=true").run(context -> {
+                    HttpClientProperties properties = context.getBean(HttpClientProperties.class);
+                    assertThat(properties.getMaxConnections()).isEqualTo(50);
+                    assertThat(properties.getResponseTimeout()).isEqualTo(Duration.ofSeconds(60));
+                    assertThat(properties.isHttp2()).isTrue();
+                });
+    }
+
+    @Test
+    void backsOffWhenServiceDefinesItsOwnProvider() {
+        runner.withUserConfiguration(CustomProvider.class).run(context -> {
+            assertThat(context).hasSingleBean(ConnectionProvider.class);
+            assertThat(context.getBean(ConnectionProvider.class).name()).isEqualTo("custom");
+        });
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class CustomProvider {
+
+        @Bean(destroyMethod = "dispose")
+        ConnectionProvider customProvider() {
+            return ConnectionProvider.create("custom", 10);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.fitness.clientsupport.loadbalancer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerProperties;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class InstanceStatsRegistryTest {
+
+    private final InstanceStatsRegistry registry = new InstanceStatsRegistry(new SimpleMeterRegistry());
+    private final ServiceInstance instance = new DefaultServiceInstance("user-service-1", "user-service",
+            "localhost", 8081, false);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(registry, "decay", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(registry, "failureThreshold", 5);
+        ReflectionTestUtils.setField(registry, "ejectionTime", Duration.ofMinutes(1));
+    }
+
+    @Test
+    void completedCallReleasesItsOutstandingRequest() {
+        WebClient client = client(_ -> Mono.just(ClientResponse.create(HttpStatus.OK).build()));
+
+        client.get().uri("http://user-service/api/users").retrieve().toBodilessEntity().block();
+
+        assertThat(registry.statsFor(instance).getOutstanding()).isZero();
+    }
+
+    @Test
+    void cancelledCallReleasesItsOutstandingRequest() {
+        WebClient client = client(_ -> Mono.never());
+
+        // timeout() cancels the upstream, which the load-balancer lifecycle never hears about
+        assertThatThrownBy(() -> client.get().uri("http://user-service/api/users")
+                .retrieve().toBodilessEntity()
+                .timeout(Duration.ofMillis(50))
+                .block())
+                .hasCauseInstanceOf(TimeoutException.class);
+
+        assertThat(registry.statsFor(instance).getOutstanding()).isZero();
+    }
+
+    @Test
+    void cancelAfterCompletionIsNotCountedTwice() {
+        InFlightRequest inFlight = new InFlightRequest();
+        InstanceStats stats = registry.statsFor(instance);
+
+        inFlight.started(stats);
+        assertThat(inFlight.finished()).isTrue();
+        inFlight.cancel();
+
+        assertThat(stats.getOutstanding()).isZero();
+    }
+
+    @Test
+    void startAfterCancelIsNotCounted() {
+        InFlightRequest inFlight = new InFlightRequest();
+        InstanceStats stats = registry.statsFor(instance);
+
+        inFlight.cancel();
+        inFlight.started(stats);
+
+        assertThat(stats.getOutstanding()).isZero();
+        assertThat(inFlight.finished()).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private WebClient client(ExchangeFunction upstream) {
+        ReactiveLoadBalancer.Factory<ServiceInstance> factory = mock(ReactiveLoadBalancer.Factory.class);
+        ReactiveLoadBalancer<ServiceInstance> balancer = mock(ReactiveLoadBalancer.class);
+        doReturn(Mono.just(new DefaultResponse(instance))).when(balancer).choose(any());
+        doReturn(balancer).when(factory).getInstance("user-service");
+        doReturn(Map.of("instanceStatsRegistry", registry)).when(factory)
+                .getInstances("user-service", LoadBalancerLifecycle.class);
+        doReturn(new LoadBalancerProperties()).when(factory).getProperties("user-service");
+
+        return WebClient.builder()
+                .exchangeFunction(upstream)
+                .filter(new InFlightRequestFilter())
+                .filter(new ReactorLoadBalancerExchangeFilterFunction(factory, List.of()))
+                .build();
+    }
+}
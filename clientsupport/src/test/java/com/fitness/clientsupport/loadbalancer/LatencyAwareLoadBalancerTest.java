@@ -0,0 +1,137 @@
+package com.fitness.clientsupport.loadbalancer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+
+class LatencyAwareLoadBalancerTest {
+
+    private static final int FAILURE_THRESHOLD = 2;
+
+    private final InstanceStatsRegistry registry = new InstanceStatsRegistry(new SimpleMeterRegistry());
+    private final ServiceInstanceListSupplier supplier = mock(ServiceInstanceListSupplier.class);
+
+    private final ServiceInstance a = instance("a");
+    private final ServiceInstance b = instance("b");
+    private final ServiceInstance c = instance("c");
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(registry, "decay", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(registry, "failureThreshold", FAILURE_THRESHOLD);
+        ReflectionTestUtils.setField(registry, "ejectionTime", Duration.ofMinutes(1));
+    }
+
+    @Test
+    void picksTheLessLoadedOfTwo() {
+        LatencyAwareLoadBalancer balancer = balancer(a, b);
+        for (int i = 0; i < 3; i++) {
+            registry.statsFor(b).requestStarted();
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(choose(balancer).getServer()).isEqualTo(a);
+        }
+    }
+
+    @Test
+    void comparesTwoDistinctInstances() {
+        LatencyAwareLoadBalancer balancer = balancer(a, b, c);
+        // with two random picks out of three, the busiest instance can never win
+        for (int i = 0; i < 3; i++) {
+            registry.statsFor(c).requestStarted();
+        }
+        registry.statsFor(b).requestStarted();
+
+        for (int i = 0; i < 200; i++) {
+            assertThat(choose(balancer).getServer()).isNotEqualTo(c);
+        }
+    }
+
+    @Test
+    void skipsEjectedInstances() {
+        LatencyAwareLoadBalancer balancer = balancer(a, b, c);
+        eject(a);
+
+        for (int i = 0; i < 200; i++) {
+            assertThat(choose(balancer).getServer()).isNotEqualTo(a);
+        }
+    }
+
+    @Test
+    void failsOpenWhenEveryInstanceIsEjected() {
+        LatencyAwareLoadBalancer balancer = balancer(a, b);
+        eject(a);
+        eject(b);
+
+        Response<ServiceInstance> response = choose(balancer);
+
+        assertThat(response.hasServer()).isTrue();
+        assertThat(response.getServer()).isIn(a, b);
+    }
+
+    @Test
+    void failureStreakBelowThresholdDoesNotEject() {
+        InstanceStats stats = registry.statsFor(a);
+        stats.recordFailure(FAILURE_THRESHOLD, Duration.ofMinutes(1).toNanos());
+        stats.recordSuccess();
+        stats.recordFailure(FAILURE_THRESHOLD, Duration.ofMinutes(1).toNanos());
+
+        assertThat(stats.isEjected()).isFalse();
+    }
+
+    @Test
+    void emptyResponseWithoutInstances() {
+        assertThat(choose(balancer()).hasServer()).isFalse();
+    }
+
+    @Test
+    void idleInstanceLatencyDecays() throws InterruptedException {
+        InstanceStats stats = new InstanceStats(Duration.ofMillis(1).toNanos());
+        stats.recordLatency(Duration.ofMillis(500).toNanos());
+
+        Thread.sleep(50);
+
+        assertThat(stats.getLatencyMillis()).isLessThan(1);
+    }
+
+    private void eject(ServiceInstance instance) {
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            registry.statsFor(instance).recordFailure(FAILURE_THRESHOLD, Duration.ofMinutes(1).toNanos());
+        }
+        assertThat(registry.statsFor(instance).isEjected()).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private LatencyAwareLoadBalancer balancer(ServiceInstance... instances) {
+        when(supplier.get(any())).thenReturn(Flux.just(List.of(instances)));
+        ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(supplier);
+        return new LatencyAwareLoadBalancer(provider, "activity-service", registry);
+    }
+
+    private static Response<ServiceInstance> choose(LatencyAwareLoadBalancer balancer) {
+        return balancer.choose(new DefaultRequest<>()).block();
+    }
+
+    private static ServiceInstance instance(String id) {
+        return new DefaultServiceInstance(id, "activity-service", id + ".local", 8082, false);
+    }
+}
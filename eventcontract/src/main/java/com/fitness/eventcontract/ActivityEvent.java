@@ -0,0 +1,48 @@
+package com.fitness.eventcontract;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What ACTIVITY-SERVICE publishes when an activity is tracked. Only the fields consumers
+ * need; bump CURRENT_VERSION when a change is not backwards compatible.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ActivityEvent {
+
+    public static final int CURRENT_VERSION = 1;
+
+    @Builder.Default
+    private int version = CURRENT_VERSION;
+
+    private String id;
+    private String userId;
+    // kept as a string so consumers don't break on activity types they don't know yet
+    private String type;
+    private Integer duration;
+    private Integer caloriesBurnt;
+    private LocalDateTime startTime;
+
+    // older JSON messages carried the whole entity, where this was additionalMetrics
+    @JsonAlias("additionalMetrics")
+    private Map<String, Object> metrics;
+
+    // downsampled high-frequency series by name, e.g. heartRate; older events don't have it
+    private Map<String, List<Double>> samplePreview;
+
+    // milliseconds since the first sample of each samplePreview point, which are not evenly spaced
+    private Map<String, List<Long>> samplePreviewOffsets;
+}
@@ -0,0 +1,89 @@
+package com.fitness.eventcontract;
+
+import java.io.IOException;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Writes ActivityEvent as Smile (binary JSON) and reads it back. Every other payload, and
+ * any message that is not Smile, e.g. JSON still queued from before, goes to the delegate.
+ */
+public class ActivityEventMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-jackson-smile";
+    public static final String VERSION_HEADER = "x-event-version";
+
+    private final MessageConverter delegate;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+
+    public ActivityEventMessageConverter(MessageConverter delegate) {
+        this.delegate = delegate;
+        SmileMapper mapper = SmileMapper.builder()
+                .addModule(new JavaTimeModule())
+                // newer producers may add fields
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        this.writer = mapper.writerFor(ActivityEvent.class);
+        this.reader = mapper.readerFor(ActivityEvent.class);
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        if (!(object instanceof ActivityEvent event)) {
+            return delegate.toMessage(object, messageProperties);
+        }
+        try {
+            byte[] body = writer.writeValueAsBytes(event);
+            messageProperties.setContentType(CONTENT_TYPE);
+            messageProperties.setContentLength(body.length);
+            messageProperties.setHeader(VERSION_HEADER, event.getVersion());
+            return new Message(body, messageProperties);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to write activity event " + event.getId(), e);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        if (!CONTENT_TYPE.equals(message.getMessageProperties().getContentType())) {
+            return delegate.fromMessage(message);
+        }
+        checkVersion(message.getMessageProperties().getHeader(VERSION_HEADER));
+        ActivityEvent event;
+        try {
+            event = reader.readValue(message.getBody());
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to read activity event", e);
+        }
+        checkVersion(event.getVersion());
+        return event;
+    }
+
+    // a newer version may change the meaning of fields this consumer knows, so it is rejected
+    // rather than half understood; a missing header comes from a producer that predates it
+    private static void checkVersion(Object version) {
+        if (version == null) {
+            return;
+        }
+        int parsed;
+        try {
+            parsed = version instanceof Number number ? number.intValue() : Integer.parseInt(version.toString());
+        } catch (NumberFormatException e) {
+            throw new MessageConversionException("Invalid activity event version: " + version);
+        }
+        if (parsed > ActivityEvent.CURRENT_VERSION) {
+            throw new MessageConversionException("Unsupported activity event version " + parsed
+                    + ", this consumer reads up to " + ActivityEvent.CURRENT_VERSION);
+        }
+    }
+}
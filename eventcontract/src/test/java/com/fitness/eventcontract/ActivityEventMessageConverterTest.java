@@ -0,0 +1,117 @@
+package com.fitness.eventcontract;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class ActivityEventMessageConverterTest {
+
+    private final Jackson2JsonMessageConverter json = new Jackson2JsonMessageConverter();
+    private final ActivityEventMessageConverter converter = new ActivityEventMessageConverter(json);
+
+    private final ActivityEvent event = ActivityEvent.builder()
+            .id("6650c1f2a8b4e03d9c1f2a8b")
+            .userId("3f1c2d4e-5a6b-7c8d-9e0f-1a2b3c4d5e6f")
+            .type("RUNNING")
+            .duration(45)
+            .caloriesBurnt(520)
+            .startTime(LocalDateTime.of(2025, 6, 1, 7, 30))
+            .metrics(Map.of("distanceKm", 8.4, "avgHeartRate", 152))
+            .build();
+
+    @Test
+    void roundTripsAsSmileAndIsSmallerThanJson() {
+        Message smile = converter.toMessage(event, new MessageProperties());
+        Message asJson = json.toMessage(event, new MessageProperties());
+
+        assertThat(smile.getMessageProperties().getContentType()).isEqualTo(ActivityEventMessageConverter.CONTENT_TYPE);
+        assertThat(converter.fromMessage(smile)).isEqualTo(event);
+        assertThat(smile.getBody().length).isLessThan(asJson.getBody().length);
+    }
+
+    @Test
+    void readsLegacyJsonActivity() {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setInferredArgumentType(ActivityEvent.class);
+        String legacy = """
+                {"id":"a1","userId":"u1","type":"RUNNING","duration":30,"caloriesBurnt":300,
+                 "additionalMetrics":{"distanceKm":5},"createdAt":"2025-06-01T07:30:00"}""";
+
+        ActivityEvent read = (ActivityEvent) converter.fromMessage(
+                new Message(legacy.getBytes(StandardCharsets.UTF_8), properties));
+
+        assertThat(read.getId()).isEqualTo("a1");
+        assertThat(read.getMetrics()).containsEntry("distanceKm", 5);
+    }
+
+    @Test
+    void rejectsANewerVersionHeader() {
+        Message smile = converter.toMessage(event, new MessageProperties());
+        smile.getMessageProperties().setHeader(ActivityEventMessageConverter.VERSION_HEADER,
+                ActivityEvent.CURRENT_VERSION + 1);
+
+        assertThatThrownBy(() -> converter.fromMessage(smile))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("Unsupported activity event version");
+    }
+
+    @Test
+    void rejectsANewerVersionInTheBody() {
+        ActivityEvent newer = ActivityEvent.builder().id("a1").version(ActivityEvent.CURRENT_VERSION + 1).build();
+        Message smile = converter.toMessage(newer, new MessageProperties());
+        smile.getMessageProperties().getHeaders().remove(ActivityEventMessageConverter.VERSION_HEADER);
+
+        assertThatThrownBy(() -> converter.fromMessage(smile)).isInstanceOf(MessageConversionException.class);
+    }
+
+    @Test
+    void readsAMessageWithoutAVersionHeader() {
+        Message smile = converter.toMessage(event, new MessageProperties());
+        smile.getMessageProperties().getHeaders().remove(ActivityEventMessageConverter.VERSION_HEADER);
+
+        assertThat(converter.fromMessage(smile)).isEqualTo(event);
+    }
+
+    // mvn test -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void throughput() {
+        int iterations = 200_000;
+        for (String name : new String[] { "json", "smile" }) {
+            var subject = name.equals("json") ? json : converter;
+            for (int i = 0; i < iterations / 10; i++) {
+                subject.fromMessage(subject.toMessage(event, jsonProperties()));
+            }
+            long bytes = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Message message = subject.toMessage(event, jsonProperties());
+                bytes += message.getBody().length;
+                subject.fromMessage(message);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            log.info("{}: {} round trips/s, {} bytes/message",
+                    name, Math.round(iterations / seconds), bytes / iterations);
+        }
+    }
+
+    private MessageProperties jsonProperties() {
+        MessageProperties properties = new MessageProperties();
+        properties.setInferredArgumentType(ActivityEvent.class);
+        return properties;
+    }
+}
@@ -1,15 +1,24 @@
 package com.fitness.gateway;
 
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 
+import com.fitness.gateway.timing.RequestTimings;
 import com.fitness.gateway.user.RegisterRequest;
+import com.fitness.gateway.user.UserRegistrationQueue;
 import com.fitness.gateway.user.UserService;
-import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.SignedJWT;
+import com.fitness.gateway.user.UserSyncMode;
+import com.github.benmanes.caffeine.cache.Cache;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,64 +29,113 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class KeycloakUserSyncFilter implements WebFilter {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     private final UserService userService;
+    private final Cache<String, Boolean> knownUserCache;
+    private final ReactiveJwtDecoder jwtDecoder;
+    private final UserRegistrationQueue userRegistrationQueue;
+
+    @Value("${gateway.user-sync.mode:blocking}")
+    private UserSyncMode syncMode;
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        String userId = exchange.getRequest().getHeaders().getFirst("X-User-Id");
-        String token = exchange.getRequest().getHeaders().getFirst("Authorization");
-        RegisterRequest registerRequest = getUserDetails(token);
+        RequestTimings.markAuthDone(exchange);
+        String userIdHeader = exchange.getRequest().getHeaders().getFirst("X-User-Id");
+        String token = resolveBearerToken(exchange.getRequest());
+
+        if (token == null) {
+            RequestTimings.markUserSyncDone(exchange);
+            return chain.filter(exchange);
+        }
 
-        if (userId == null) {
+        // the security chain has already verified this token, so this is served from the verified-jwt cache
+        return jwtDecoder.decode(token)
+                .map(this::getUserDetails)
+                .onErrorResume(JwtException.class, e -> {
+                    log.warn("Unable to read user details from token: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(details -> syncUser(exchange, chain, userIdHeader, details.orElse(null)));
+    }
+
+    private Mono<Void> syncUser(ServerWebExchange exchange, WebFilterChain chain, String userIdHeader,
+            RegisterRequest registerRequest) {
+        String userId = userIdHeader;
+        if (userId == null && registerRequest != null) {
             userId = registerRequest.getKeycloakId();
         }
 
         final String finalUserId = userId;
 
-        if (finalUserId != null && token != null) {
-            return userService.validateUser(finalUserId)
-                    .flatMap(exist -> {
-                        if (!exist) {
-                            // Register user
-
-                            if (registerRequest != null) {
-                                return userService.registerUser(registerRequest)
-                                        .then(Mono.empty());
-                            } else {
-                                return Mono.empty();
-                            }
+        if (finalUserId == null) {
+            RequestTimings.markUserSyncDone(exchange);
+            return chain.filter(exchange);
+        }
+
+        // user was already confirmed or registered recently, no need to call USER-SERVICE again
+        if (knownUserCache.getIfPresent(finalUserId) != null) {
+            return forwardWithUserId(exchange, chain, finalUserId);
+        }
+
+        // registration is idempotent in USER-SERVICE, so hand it off and forward right away
+        if (syncMode == UserSyncMode.ASYNC) {
+            if (registerRequest != null) {
+                userRegistrationQueue.enqueue(registerRequest);
+            }
+            return forwardWithUserId(exchange, chain, finalUserId);
+        }
+
+        return userService.validateUser(finalUserId)
+                .flatMap(exist -> {
+                    if (!exist) {
+                        // Register user
+
+                        if (registerRequest != null) {
+                            return userService.registerUser(registerRequest)
+                                    .doOnNext(_ -> knownUserCache.put(finalUserId, Boolean.TRUE))
+                                    .then(Mono.empty());
                         } else {
-                            log.info("User already exists, skipping sync: {}", finalUserId);
                             return Mono.empty();
                         }
-                    })
-                    .then(Mono.defer(() -> {
-                        ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
-                                .header("X-User-Id", finalUserId)
-                                .build();
-                        return chain.filter(exchange.mutate().request(mutatedRequest).build());
-                    }));
-        }
-        return chain.filter(exchange);
+                    } else {
+                        log.info("User already exists, skipping sync: {}", finalUserId);
+                        knownUserCache.put(finalUserId, Boolean.TRUE);
+                        return Mono.empty();
+                    }
+                })
+                .then(Mono.defer(() -> forwardWithUserId(exchange, chain, finalUserId)));
     }
 
-    private RegisterRequest getUserDetails(String token) {
-        try {
-            String tokenWithoutBearer = token.replace("Bearer ", "").trim();
-            SignedJWT signedJWT = SignedJWT.parse(tokenWithoutBearer);
-            JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
-
-            RegisterRequest registerRequest = new RegisterRequest();
-            registerRequest.setEmail(claims.getStringClaim("email"));
-            registerRequest.setFirstName(claims.getStringClaim("given_name"));
-            registerRequest.setLastName(claims.getStringClaim("family_name"));
-            registerRequest.setKeycloakId(claims.getStringClaim("sub"));
-            registerRequest.setPassword("defaultPassword123"); // Placeholder password
-
-            return registerRequest;
-        } catch (Exception e) {
-            e.printStackTrace();
+    private Mono<Void> forwardWithUserId(ServerWebExchange exchange, WebFilterChain chain, String userId) {
+        RequestTimings.markUserSyncDone(exchange);
+        ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
+                .header("X-User-Id", userId)
+                .build();
+        return chain.filter(exchange.mutate().request(mutatedRequest).build());
+    }
+
+    private String resolveBearerToken(ServerHttpRequest request) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null
+                || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
             return null;
         }
+        String token = authorization.substring(BEARER_PREFIX.length()).trim();
+        return token.isEmpty() ? null : token;
+    }
+
+    private RegisterRequest getUserDetails(Jwt jwt) {
+        RegisterRequest registerRequest = new RegisterRequest();
+        registerRequest.setEmail(jwt.getClaimAsString("email"));
+        registerRequest.setFirstName(jwt.getClaimAsString("given_name"));
+        registerRequest.setLastName(jwt.getClaimAsString("family_name"));
+        registerRequest.setKeycloakId(jwt.getSubject());
+        registerRequest.setPassword("defaultPassword123"); // Placeholder password
+
+        return registerRequest;
     }
 }
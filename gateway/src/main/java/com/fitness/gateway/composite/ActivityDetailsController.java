@@ -0,0 +1,24 @@
+package com.fitness.gateway.composite;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/activity-details")
+public class ActivityDetailsController {
+
+    private final ActivityDetailsService activityDetailsService;
+
+    @GetMapping("/{activityId}")
+    public Mono<ActivityDetailsResponse> getActivityDetails(@PathVariable String activityId,
+            @RequestHeader("X-User-Id") String userId) {
+        return activityDetailsService.getActivityDetails(activityId, userId);
+    }
+}
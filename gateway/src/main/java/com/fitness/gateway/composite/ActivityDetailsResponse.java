@@ -0,0 +1,25 @@
+package com.fitness.gateway.composite;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityDetailsResponse {
+
+    private JsonNode activity;
+    private JsonNode recommendation;
+    private RecommendationStatus recommendationStatus;
+
+    public enum RecommendationStatus {
+        READY,
+        // not generated yet, or AI-SERVICE was too slow to say
+        PENDING,
+        // AI-SERVICE failed, asking again later may help
+        UNAVAILABLE
+    }
+}
@@ -0,0 +1,77 @@
+package com.fitness.gateway.composite;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fitness.gateway.composite.ActivityDetailsResponse.RecommendationStatus;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityDetailsService {
+
+    private final WebClient activityServiceWebClient;
+    private final WebClient aiServiceWebClient;
+
+    @Value("${gateway.composite.activity-timeout:2s}")
+    private Duration activityTimeout;
+
+    @Value("${gateway.composite.recommendation-timeout:1s}")
+    private Duration recommendationTimeout;
+
+    // both calls run concurrently, so the response takes as long as the slower of the two
+    public Mono<ActivityDetailsResponse> getActivityDetails(String activityId, String userId) {
+        Mono<JsonNode> activity = activityServiceWebClient.get()
+                .uri("/api/activities/{id}", activityId)
+                .header("X-User-Id", userId)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(activityTimeout)
+                .onErrorMap(TimeoutException.class,
+                        e -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                                "Timed out loading activity: " + activityId, e))
+                .onErrorMap(WebClientResponseException.class,
+                        e -> new ResponseStatusException(e.getStatusCode(), "Unable to load activity: " + activityId, e));
+
+        // the recommendation is produced asynchronously, so a missing or slow one is still pending
+        Mono<Recommendation> recommendation = aiServiceWebClient.get()
+                .uri("/api/recommendation/activity/{id}", activityId)
+                .header("X-User-Id", userId)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(recommendationTimeout)
+                .map(body -> new Recommendation(body, RecommendationStatus.READY))
+                .onErrorResume(e -> Mono.just(new Recommendation(null, statusOf(activityId, e))))
+                .defaultIfEmpty(new Recommendation(null, RecommendationStatus.PENDING));
+
+        return Mono.zip(activity, recommendation)
+                .map(result -> new ActivityDetailsResponse(
+                        result.getT1(),
+                        result.getT2().body(),
+                        result.getT2().status()));
+    }
+
+    private RecommendationStatus statusOf(String activityId, Throwable error) {
+        if (error instanceof TimeoutException || error instanceof WebClientResponseException.NotFound) {
+            log.debug("Recommendation pending for activity {}: {}", activityId, error.getMessage());
+            return RecommendationStatus.PENDING;
+        }
+        log.warn("Recommendation unavailable for activity {}: {}", activityId, error.getMessage());
+        return RecommendationStatus.UNAVAILABLE;
+    }
+
+    private record Recommendation(JsonNode body, RecommendationStatus status) {
+    }
+}
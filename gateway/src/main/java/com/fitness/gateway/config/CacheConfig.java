@@ -0,0 +1,97 @@
+package com.fitness.gateway.config;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import com.fitness.gateway.filter.CachedResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+@Configuration
+public class CacheConfig {
+
+    @Value("${gateway.user-sync.cache.max-size:100000}")
+    private long knownUserMaxSize;
+
+    @Value("${gateway.user-sync.cache.ttl:30m}")
+    private Duration knownUserTtl;
+
+    @Value("${gateway.jwt-cache.max-size:50000}")
+    private long verifiedJwtMaxSize;
+
+    @Value("${gateway.jwt-cache.max-ttl:15m}")
+    private Duration verifiedJwtMaxTtl;
+
+    @Value("${gateway.response-cache.max-bytes:52428800}")
+    private long responseCacheMaxBytes;
+
+    @Value("${gateway.response-cache.ttl:30s}")
+    private Duration responseCacheTtl;
+
+    @Value("${gateway.response-cache.max-users:100000}")
+    private long responseCacheMaxUsers;
+
+    // keycloak ids that USER-SERVICE has already confirmed, so the sync filter can skip the remote call
+    @Bean
+    public Cache<String, Boolean> knownUserCache(MeterRegistry meterRegistry) {
+        Cache<String, Boolean> cache = Caffeine.newBuilder()
+                .maximumSize(knownUserMaxSize)
+                .expireAfterWrite(knownUserTtl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.known-users");
+    }
+
+    // verified tokens keyed by digest, each entry lives until the token's own exp (capped by max-ttl)
+    @Bean
+    public Cache<String, Jwt> verifiedJwtCache(MeterRegistry meterRegistry) {
+        Cache<String, Jwt> cache = Caffeine.newBuilder()
+                .maximumSize(verifiedJwtMaxSize)
+                .expireAfter(Expiry.creating((String key, Jwt jwt) -> timeToExpiry(jwt)))
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.verified-jwts");
+    }
+
+    // per-user GET responses, bounded by total body size rather than entry count
+    @Bean
+    public Cache<String, CachedResponse> responseCache(MeterRegistry meterRegistry) {
+        Cache<String, CachedResponse> cache = Caffeine.newBuilder()
+                .maximumWeight(responseCacheMaxBytes)
+                .weigher((String key, CachedResponse response) -> key.length() + response.body().length)
+                .expireAfterWrite(responseCacheTtl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.responses");
+    }
+
+    // current response-cache generation per user; once idle for a ttl, every entry of it has expired too
+    @Bean
+    public Cache<String, Long> responseCacheGenerations() {
+        return Caffeine.newBuilder()
+                .maximumSize(responseCacheMaxUsers)
+                .expireAfterAccess(responseCacheTtl)
+                .build();
+    }
+
+    private Duration timeToExpiry(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null) {
+            return verifiedJwtMaxTtl;
+        }
+        Duration remaining = Duration.between(Instant.now(), expiresAt);
+        if (remaining.isNegative()) {
+            return Duration.ZERO;
+        }
+        return remaining.compareTo(verifiedJwtMaxTtl) < 0 ? remaining : verifiedJwtMaxTtl;
+    }
+}
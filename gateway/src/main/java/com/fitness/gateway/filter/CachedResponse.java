@@ -0,0 +1,7 @@
+package com.fitness.gateway.filter;
+
+import org.springframework.http.MediaType;
+
+public record CachedResponse(byte[] body, MediaType contentType, String etag) {
+
+}
@@ -0,0 +1,214 @@
+package com.fitness.gateway.filter;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Short-lived per-user cache for read-mostly GET routes. Answers If-None-Match with 304
+ * and serves fresh entries without calling the downstream service. Keys carry a per-user
+ * generation, so a write invalidates by moving the user to a new one.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    private final Cache<String, CachedResponse> responseCache;
+    private final Cache<String, Long> responseCacheGenerations;
+    private final MeterRegistry meterRegistry;
+
+    // never reused, so a user whose generation was evicted can't see entries of an older one
+    private final AtomicLong nextGeneration = new AtomicLong();
+
+    @Value("${gateway.response-cache.paths:/api/activities,/api/activities/{id},/api/recommendation/activity/{id}}")
+    private List<String> paths;
+
+    @Value("${gateway.response-cache.max-entry-bytes:262144}")
+    private int maxEntryBytes;
+
+    private List<PathPattern> cacheablePaths;
+
+    @PostConstruct
+    public void init() {
+        cacheablePaths = paths.stream().map(PathPatternParser.defaultInstance::parse).toList();
+    }
+
+    @Override
+    public int getOrder() {
+        // must wrap the response before NettyWriteResponseFilter writes to it
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String userId = request.getHeaders().getFirst("X-User-Id");
+        if (userId == null) {
+            return chain.filter(exchange);
+        }
+
+        if (isWrite(request.getMethod())) {
+            // a write may change anything this user has cached, e.g. the activity list; and once more
+            // when it is done, since a read running alongside it may have cached the old state
+            invalidate(userId);
+            return chain.filter(exchange).doFinally(_ -> invalidate(userId));
+        }
+
+        if (request.getMethod() != HttpMethod.GET || !isCacheable(request) || isStreaming(request)) {
+            return chain.filter(exchange);
+        }
+
+        String routeId = routeId(exchange);
+        String key = userId + " " + generation(userId) + " "
+                + request.getURI().getRawPath() + "?" + request.getURI().getRawQuery();
+
+        CachedResponse cached = responseCache.getIfPresent(key);
+        if (cached != null) {
+            return writeCached(exchange, routeId, cached);
+        }
+
+        recordLookup(routeId, "miss");
+        return chain.filter(exchange.mutate().response(cachingDecorator(exchange, routeId, key)).build());
+    }
+
+    private static boolean isWrite(HttpMethod method) {
+        return method == HttpMethod.POST || method == HttpMethod.PUT
+                || method == HttpMethod.PATCH || method == HttpMethod.DELETE;
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, String routeId, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().setETag(cached.etag());
+
+        if (etagMatches(exchange.getRequest(), cached.etag())) {
+            recordLookup(routeId, "hit-not-modified");
+            bytesSaved(routeId, cached.body().length);
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+
+        recordLookup(routeId, "hit");
+        bytesSaved(routeId, cached.body().length);
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setContentType(cached.contentType());
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private ServerHttpResponseDecorator cachingDecorator(ServerWebExchange exchange, String routeId, String key) {
+        return new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                // only JSON documents are cached, downloads and streams must not be buffered here
+                MediaType contentType = getHeaders().getContentType();
+                if (getStatusCode() != HttpStatus.OK || contentType == null
+                        || !MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+                    return super.writeWith(body);
+                }
+                return DataBufferUtils.join(body).flatMap(joined -> {
+                    byte[] bytes = new byte[joined.readableByteCount()];
+                    joined.read(bytes);
+                    DataBufferUtils.release(joined);
+
+                    HttpHeaders headers = getHeaders();
+                    String etag = headers.getETag() != null
+                            ? headers.getETag()
+                            : "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+                    headers.setETag(etag);
+
+                    if (bytes.length <= maxEntryBytes) {
+                        responseCache.put(key, new CachedResponse(bytes, headers.getContentType(), etag));
+                    }
+
+                    if (etagMatches(exchange.getRequest(), etag)) {
+                        bytesSaved(routeId, bytes.length);
+                        setStatusCode(HttpStatus.NOT_MODIFIED);
+                        headers.remove(HttpHeaders.CONTENT_LENGTH);
+                        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+                        return setComplete();
+                    }
+                    return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                });
+            }
+        };
+    }
+
+    private boolean isCacheable(ServerHttpRequest request) {
+        for (PathPattern pattern : cacheablePaths) {
+            if (pattern.matches(request.getPath().pathWithinApplication())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // streamed bodies must pass straight through instead of being joined in memory
+    private boolean isStreaming(ServerHttpRequest request) {
+        for (MediaType accepted : request.getHeaders().getAccept()) {
+            if (MediaType.APPLICATION_NDJSON.isCompatibleWith(accepted) && !accepted.isWildcardType()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean etagMatches(ServerHttpRequest request, String etag) {
+        for (String candidate : request.getHeaders().getIfNoneMatch()) {
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long generation(String userId) {
+        return responseCacheGenerations.get(userId, _ -> nextGeneration.incrementAndGet());
+    }
+
+    // entries of the old generation are never looked up again and age out of the cache
+    private void invalidate(String userId) {
+        responseCacheGenerations.put(userId, nextGeneration.incrementAndGet());
+    }
+
+    private String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "unknown";
+    }
+
+    private void recordLookup(String routeId, String result) {
+        meterRegistry.counter("gateway.response-cache.requests", "route", routeId, "result", result).increment();
+    }
+
+    private void bytesSaved(String routeId, long bytes) {
+        meterRegistry.counter("gateway.response-cache.bytes-saved", "route", routeId).increment(bytes);
+    }
+}
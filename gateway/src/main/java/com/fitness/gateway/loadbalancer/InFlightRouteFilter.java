@@ -0,0 +1,32 @@
+package com.fitness.gateway.loadbalancer;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.fitness.clientsupport.loadbalancer.InFlightRequest;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs right before ReactiveLoadBalancerClientFilter so a routed call cancelled by the client
+ * disconnecting still releases its outstanding slot on the chosen instance.
+ */
+@Component
+public class InFlightRouteFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER - 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        InFlightRequest inFlight = new InFlightRequest();
+        exchange.getAttributes().put(InFlightRequest.ATTRIBUTE, inFlight);
+        return chain.filter(exchange).doOnCancel(inFlight::cancel);
+    }
+}
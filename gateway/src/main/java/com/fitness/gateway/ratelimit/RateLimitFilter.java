@@ -0,0 +1,122 @@
+package com.fitness.gateway.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory per-user rate limiting, keyed by the subject of the verified JWT. The X-User-Id
+ * header is not used, the client controls it.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final List<CompiledRule> rules = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        for (RateLimitProperties.Rule rule : properties.getRules()) {
+            rules.add(new CompiledRule(rule));
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        CompiledRule rule = match(exchange.getRequest());
+        if (rule == null) {
+            return chain.filter(exchange);
+        }
+
+        return exchange.getPrincipal()
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .mapNotNull(principal -> ((JwtAuthenticationToken) principal).getToken().getSubject())
+                .map(subject -> rule.tryAcquire(subject, System.nanoTime()))
+                // anonymous requests are left to the security chain
+                .defaultIfEmpty(0L)
+                .flatMap(waitNanos -> waitNanos == 0 ? chain.filter(exchange) : reject(exchange, rule, waitNanos));
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, CompiledRule rule, long waitNanos) {
+        rule.rejected.increment();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                Long.toString(Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L)));
+        return response.setComplete();
+    }
+
+    private CompiledRule match(ServerHttpRequest request) {
+        String method = request.getMethod().name();
+        for (CompiledRule rule : rules) {
+            if ((rule.method == null || rule.method.equalsIgnoreCase(method))
+                    && rule.path.matches(request.getPath().pathWithinApplication())) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private class CompiledRule {
+
+        private final String method;
+        private final PathPattern path;
+        private final long emissionIntervalNanos;
+        private final long burstToleranceNanos;
+        private final Cache<String, TokenBucket> buckets;
+        private final Counter rejected;
+
+        CompiledRule(RateLimitProperties.Rule rule) {
+            this.method = rule.getMethod();
+            this.path = PathPatternParser.defaultInstance.parse(rule.getPath());
+            this.emissionIntervalNanos = (long) (1_000_000_000L / rule.getRefillPerSecond());
+            this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, rule.getCapacity() - 1);
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(properties.getMaxUsers())
+                    .expireAfterAccess(properties.getIdleTimeout())
+                    .build();
+            this.rejected = meterRegistry.counter("gateway.rate-limit.rejected", "rule", rule.getId());
+        }
+
+        long tryAcquire(String subject, long now) {
+            TokenBucket bucket = buckets.getIfPresent(subject);
+            if (bucket == null) {
+                bucket = buckets.get(subject, _ -> new TokenBucket(now));
+            }
+            return bucket.tryAcquire(now, emissionIntervalNanos, burstToleranceNanos);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.fitness.gateway.ratelimit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+@Component
+@Validated
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // idle buckets are dropped after this long, a returning user starts with a full bucket
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    private long maxUsers = 100_000;
+
+    // first matching rule wins
+    @Valid
+    private List<Rule> rules = new ArrayList<>();
+
+    // the bounds keep the GCRA intervals in TokenBucket finite and within a long
+    @Data
+    public static class Rule {
+
+        @NotBlank
+        private String id;
+
+        // null matches any method
+        private String method;
+
+        @NotBlank
+        private String path;
+
+        @Min(1)
+        @Max(1_000_000)
+        private int capacity;
+
+        @DecimalMin("0.001")
+        private double refillPerSecond;
+    }
+}
@@ -0,0 +1,33 @@
+package com.fitness.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as GCRA: the whole bucket state is a single
+ * "theoretical arrival time", updated with one compare-and-set per allowed request.
+ */
+public class TokenBucket {
+
+    private final AtomicLong theoreticalArrivalNanos;
+
+    public TokenBucket(long nowNanos) {
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise the nanos until the next token is available
+     */
+    public long tryAcquire(long nowNanos, long emissionIntervalNanos, long burstToleranceNanos) {
+        while (true) {
+            long arrival = theoreticalArrivalNanos.get();
+            long allowedAt = arrival - burstToleranceNanos;
+            if (nowNanos - allowedAt < 0) {
+                return allowedAt - nowNanos;
+            }
+            long next = Math.max(arrival, nowNanos) + emissionIntervalNanos;
+            if (theoreticalArrivalNanos.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.fitness.gateway.timing;
+
+public enum RequestPhase {
+    AUTH("auth"),
+    USER_SYNC("user-sync"),
+    UPSTREAM("upstream"),
+    TOTAL("total");
+
+    private final String tag;
+
+    RequestPhase(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
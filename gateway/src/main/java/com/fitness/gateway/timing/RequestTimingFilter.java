@@ -0,0 +1,94 @@
+package com.fitness.gateway.timing;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Outermost filter: starts the clock before the security chain and records per-route,
+ * per-phase latency histograms (auth, user-sync, upstream, total) once the request completes.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestTimingFilter implements WebFilter, Ordered {
+
+    private static final String NO_ROUTE = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    // one Timer per phase per route, built once so recording does not allocate tags
+    private final ConcurrentMap<String, Timer[]> timersByRoute = new ConcurrentHashMap<>();
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        RequestTimings timings = new RequestTimings(System.nanoTime());
+        exchange.getAttributes().put(RequestTimings.ATTRIBUTE, timings);
+        return chain.filter(exchange)
+                .doFinally(_ -> record(exchange, timings, System.nanoTime()));
+    }
+
+    private void record(ServerWebExchange exchange, RequestTimings timings, long endNanos) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        Timer[] timers = timersFor(route != null ? route.getId() : NO_ROUTE);
+
+        long start = timings.getStartNanos();
+        long authDone = timings.getAuthDoneNanos();
+        long syncDone = timings.getUserSyncDoneNanos();
+
+        if (authDone != 0) {
+            recordPhase(timers, RequestPhase.AUTH, authDone - start);
+        }
+        if (authDone != 0 && syncDone != 0) {
+            recordPhase(timers, RequestPhase.USER_SYNC, syncDone - authDone);
+        }
+        if (timings.getUpstreamStartNanos() != 0 && timings.getUpstreamDoneNanos() != 0) {
+            recordPhase(timers, RequestPhase.UPSTREAM, timings.getUpstreamDoneNanos() - timings.getUpstreamStartNanos());
+        }
+        recordPhase(timers, RequestPhase.TOTAL, endNanos - start);
+    }
+
+    private void recordPhase(Timer[] timers, RequestPhase phase, long nanos) {
+        timers[phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer[] timersFor(String routeId) {
+        Timer[] timers = timersByRoute.get(routeId);
+        if (timers == null) {
+            timers = timersByRoute.computeIfAbsent(routeId, this::buildTimers);
+        }
+        return timers;
+    }
+
+    private Timer[] buildTimers(String routeId) {
+        RequestPhase[] phases = RequestPhase.values();
+        Timer[] timers = new Timer[phases.length];
+        for (RequestPhase phase : phases) {
+            timers[phase.ordinal()] = Timer.builder("gateway.request.latency")
+                    .tag("route", routeId)
+                    .tag("phase", phase.getTag())
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .distributionStatisticExpiry(Duration.ofMinutes(1))
+                    .register(meterRegistry);
+        }
+        return timers;
+    }
+}
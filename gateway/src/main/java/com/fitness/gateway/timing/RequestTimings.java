@@ -0,0 +1,38 @@
+package com.fitness.gateway.timing;
+
+import org.springframework.web.server.ServerWebExchange;
+
+import lombok.Data;
+
+/**
+ * Phase timestamps (System.nanoTime) of a single gateway request. Zero means the phase was not reached.
+ */
+@Data
+public class RequestTimings {
+
+    public static final String ATTRIBUTE = RequestTimings.class.getName();
+
+    private final long startNanos;
+    private long authDoneNanos;
+    private long userSyncDoneNanos;
+    private long upstreamStartNanos;
+    private long upstreamDoneNanos;
+
+    public static RequestTimings from(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTRIBUTE);
+    }
+
+    public static void markAuthDone(ServerWebExchange exchange) {
+        RequestTimings timings = from(exchange);
+        if (timings != null) {
+            timings.setAuthDoneNanos(System.nanoTime());
+        }
+    }
+
+    public static void markUserSyncDone(ServerWebExchange exchange) {
+        RequestTimings timings = from(exchange);
+        if (timings != null) {
+            timings.setUserSyncDoneNanos(System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.fitness.gateway.timing;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs right before NettyRoutingFilter and measures the time until the routed service answers.
+ */
+@Component
+public class UpstreamTimingFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public int getOrder() {
+        // NettyRoutingFilter runs at LOWEST_PRECEDENCE
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestTimings timings = RequestTimings.from(exchange);
+        if (timings == null) {
+            return chain.filter(exchange);
+        }
+        timings.setUpstreamStartNanos(System.nanoTime());
+        return chain.filter(exchange)
+                .doFinally(_ -> timings.setUpstreamDoneNanos(System.nanoTime()));
+    }
+}
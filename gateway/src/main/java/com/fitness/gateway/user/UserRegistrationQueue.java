@@ -0,0 +1,151 @@
+package com.fitness.gateway.user;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+
+/**
+ * Registers new Keycloak users with USER-SERVICE in the background, so the
+ * gateway can forward a user's first request without waiting on it. Users that
+ * USER-SERVICE already knows (e.g. after a gateway restart) are only looked up.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class UserRegistrationQueue {
+
+    private final UserService userService;
+    private final Cache<String, Boolean> knownUserCache;
+
+    // keycloak ids queued or being registered right now
+    private final Set<String> pendingUsers = ConcurrentHashMap.newKeySet();
+
+    @Value("${gateway.user-sync.async.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${gateway.user-sync.async.batch-size:50}")
+    private int batchSize;
+
+    @Value("${gateway.user-sync.async.batch-window:200ms}")
+    private Duration batchWindow;
+
+    @Value("${gateway.user-sync.async.lookup-concurrency:8}")
+    private int lookupConcurrency;
+
+    @Value("${gateway.user-sync.async.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${gateway.user-sync.async.retry-backoff:500ms}")
+    private Duration retryBackoff;
+
+    private Sinks.Many<RegisterRequest> registrations;
+    private Disposable subscription;
+
+    @PostConstruct
+    public void start() {
+        registrations = Sinks.many().unicast()
+                .onBackpressureBuffer(Queues.<RegisterRequest>get(queueCapacity).get());
+        subscription = registrations.asFlux()
+                .flatMap(this::skipExisting, lookupConcurrency)
+                .bufferTimeout(batchSize, batchWindow)
+                .concatMap(this::registerBatch)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscription.dispose();
+    }
+
+    public void enqueue(RegisterRequest request) {
+        String keycloakId = request.getKeycloakId();
+        if (keycloakId == null || !pendingUsers.add(keycloakId)) {
+            return;
+        }
+
+        Sinks.EmitResult result;
+        synchronized (this) {
+            result = registrations.tryEmitNext(request);
+        }
+        if (result.isFailure()) {
+            // dropped for now, the user's next request will queue it again
+            pendingUsers.remove(keycloakId);
+            log.warn("Unable to queue user registration for {}: {}", keycloakId, result);
+        }
+    }
+
+    // emits the request only when USER-SERVICE doesn't have the user yet
+    private Mono<RegisterRequest> skipExisting(RegisterRequest request) {
+        String keycloakId = request.getKeycloakId();
+        return userService.validateUser(keycloakId)
+                .onErrorResume(e -> {
+                    // registration is idempotent, so fall through to it
+                    log.warn("Unable to look up user {}: {}", keycloakId, e.getMessage());
+                    return Mono.just(false);
+                })
+                .flatMap(exists -> {
+                    if (!exists) {
+                        return Mono.just(request);
+                    }
+                    knownUserCache.put(keycloakId, Boolean.TRUE);
+                    pendingUsers.remove(keycloakId);
+                    return Mono.empty();
+                });
+    }
+
+    // USER-SERVICE registers each user on its own, so only the ones missing from the response are retried
+    private Mono<Void> registerBatch(List<RegisterRequest> batch) {
+        Map<String, RegisterRequest> remaining = new ConcurrentHashMap<>();
+        batch.forEach(request -> remaining.put(request.getKeycloakId(), request));
+
+        return Mono.defer(() -> userService.registerUsers(List.copyOf(remaining.values())))
+                .flatMap(users -> {
+                    users.forEach(user -> markRegistered(remaining, user));
+                    return remaining.isEmpty()
+                            ? Mono.<Void>empty()
+                            : Mono.error(new IllegalStateException(remaining.size() + " users not registered"));
+                })
+                .retryWhen(Retry.backoff(maxRetries, retryBackoff))
+                .onErrorResume(e -> {
+                    log.error("Failed to register {} of {} users", remaining.size(), batch.size(), e);
+                    return Mono.empty();
+                })
+                .doFinally(_ -> batch.forEach(request -> pendingUsers.remove(request.getKeycloakId())));
+    }
+
+    // an email registered before Keycloak comes back with that older user's keycloak id; that user is
+    // someone else as far as this keycloak id is concerned, so it is reported rather than trusted
+    private void markRegistered(Map<String, RegisterRequest> remaining, UserResponse user) {
+        RegisterRequest registered = user.getKeycloakId() != null ? remaining.remove(user.getKeycloakId()) : null;
+        if (registered != null) {
+            knownUserCache.put(registered.getKeycloakId(), Boolean.TRUE);
+            return;
+        }
+        remaining.values().removeIf(request -> {
+            boolean conflict = request.getEmail() != null && request.getEmail().equals(user.getEmail());
+            if (conflict) {
+                // retrying returns the same user, so give up on it until the user's next request
+                log.error("Cannot register {}: {} already belongs to keycloak id {}",
+                        request.getKeycloakId(), request.getEmail(), user.getKeycloakId());
+            }
+            return conflict;
+        });
+    }
+}
@@ -1,5 +1,7 @@
 package com.fitness.gateway.user;
 
+import java.util.List;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -50,4 +52,21 @@ public class UserService {
                     return Mono.error(new RuntimeException("Unable to register user", e));
                 });
     }
+
+    public Mono<List<UserResponse>> registerUsers(List<RegisterRequest> requests) {
+        log.info("Calling User Batch Registeration API for {} users", requests.size());
+
+        return userServiceWebClient.post()
+                .uri("/api/users/register/batch")
+                .bodyValue(requests)
+                .retrieve()
+                .bodyToFlux(UserResponse.class)
+                .collectList()
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    if (e.getStatusCode() == HttpStatus.BAD_REQUEST) {
+                        return Mono.error(new RuntimeException("Bad Request"));
+                    }
+                    return Mono.error(new RuntimeException("Unable to register users", e));
+                });
+    }
 }
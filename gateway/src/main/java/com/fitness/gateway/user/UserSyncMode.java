@@ -0,0 +1,6 @@
+package com.fitness.gateway.user;
+
+public enum UserSyncMode {
+    BLOCKING,
+    ASYNC
+}
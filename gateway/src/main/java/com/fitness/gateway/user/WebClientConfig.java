@@ -3,6 +3,7 @@ package com.fitness.gateway.user;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
 @Configuration
@@ -10,12 +11,22 @@ public class WebClientConfig {
 
     @Bean
     @LoadBalanced
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public WebClient.Builder webClientBuilder(ReactorClientHttpConnector httpClientConnector) {
+        return WebClient.builder().clientConnector(httpClientConnector);
     }
 
     @Bean
     public WebClient userServiceWebClient(WebClient.Builder webClientBuilder) {
         return webClientBuilder.baseUrl("http://USER-SERVICE").build();
     }
+
+    @Bean
+    public WebClient activityServiceWebClient(WebClient.Builder webClientBuilder) {
+        return webClientBuilder.baseUrl("http://ACTIVITY-SERVICE").build();
+    }
+
+    @Bean
+    public WebClient aiServiceWebClient(WebClient.Builder webClientBuilder) {
+        return webClientBuilder.baseUrl("http://AI-SERVICE").build();
+    }
 }
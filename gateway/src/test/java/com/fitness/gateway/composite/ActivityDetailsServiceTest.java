@@ -0,0 +1,92 @@
+package com.fitness.gateway.composite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fitness.gateway.composite.ActivityDetailsResponse.RecommendationStatus;
+
+import reactor.core.publisher.Mono;
+
+class ActivityDetailsServiceTest {
+
+    @Test
+    void readyWhenBothAnswer() {
+        ActivityDetailsResponse details = details(activity(), json("{\"activityId\":\"a1\"}"));
+
+        assertThat(details.getActivity().get("id").asText()).isEqualTo("a1");
+        assertThat(details.getRecommendation().get("activityId").asText()).isEqualTo("a1");
+        assertThat(details.getRecommendationStatus()).isEqualTo(RecommendationStatus.READY);
+    }
+
+    @Test
+    void pendingWhenRecommendationIsNotFound() {
+        ActivityDetailsResponse details = details(activity(), status(HttpStatus.NOT_FOUND));
+
+        assertThat(details.getRecommendation()).isNull();
+        assertThat(details.getRecommendationStatus()).isEqualTo(RecommendationStatus.PENDING);
+    }
+
+    @Test
+    void pendingWhenRecommendationTimesOut() {
+        ActivityDetailsResponse details = details(activity(), Mono.never());
+
+        assertThat(details.getRecommendationStatus()).isEqualTo(RecommendationStatus.PENDING);
+    }
+
+    @Test
+    void unavailableWhenRecommendationFails() {
+        assertThat(details(activity(), status(HttpStatus.INTERNAL_SERVER_ERROR)).getRecommendationStatus())
+                .isEqualTo(RecommendationStatus.UNAVAILABLE);
+        assertThat(details(activity(), status(HttpStatus.FORBIDDEN)).getRecommendationStatus())
+                .isEqualTo(RecommendationStatus.UNAVAILABLE);
+    }
+
+    @Test
+    void activityTimeoutIs504() {
+        assertThatThrownBy(() -> details(Mono.never(), json("{}")))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT));
+    }
+
+    @Test
+    void activityErrorKeepsItsStatus() {
+        assertThatThrownBy(() -> details(status(HttpStatus.NOT_FOUND), json("{}")))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    private static ActivityDetailsResponse details(Mono<ClientResponse> activity, Mono<ClientResponse> recommendation) {
+        ActivityDetailsService service = new ActivityDetailsService(
+                WebClient.builder().exchangeFunction(_ -> activity).build(),
+                WebClient.builder().exchangeFunction(_ -> recommendation).build());
+        ReflectionTestUtils.setField(service, "activityTimeout", Duration.ofMillis(200));
+        ReflectionTestUtils.setField(service, "recommendationTimeout", Duration.ofMillis(100));
+        return service.getActivityDetails("a1", "u1").block();
+    }
+
+    private static Mono<ClientResponse> activity() {
+        return json("{\"id\":\"a1\"}");
+    }
+
+    private static Mono<ClientResponse> json(String body) {
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build());
+    }
+
+    private static Mono<ClientResponse> status(HttpStatus status) {
+        return Mono.just(ClientResponse.create(status).build());
+    }
+}
@@ -0,0 +1,124 @@
+package com.fitness.gateway.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class ResponseCacheFilterTest {
+
+    private final Cache<String, CachedResponse> responseCache = Caffeine.newBuilder().build();
+    private final Cache<String, Long> generations = Caffeine.newBuilder().build();
+    private final ResponseCacheFilter filter = new ResponseCacheFilter(responseCache, generations,
+            new SimpleMeterRegistry());
+
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+    private String body = "[{\"id\":\"a1\"}]";
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(filter, "paths", List.of("/api/activities", "/api/activities/{id}"));
+        ReflectionTestUtils.setField(filter, "maxEntryBytes", 262144);
+        filter.init();
+    }
+
+    @Test
+    void secondReadIsServedFromCache() {
+        assertThat(get("u1")).isEqualTo(body);
+        assertThat(get("u1")).isEqualTo(body);
+
+        assertThat(downstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void writeInvalidatesOnlyThatUser() {
+        get("u1");
+        get("u2");
+
+        post("u1", Mono.empty());
+        get("u1");
+        get("u2");
+
+        assertThat(downstreamCalls).hasValue(3);
+    }
+
+    @Test
+    void headAndOptionsDoNotInvalidate() {
+        get("u1");
+
+        filter.filter(exchange(MockServerHttpRequest.head("/api/activities"), "u1"), this::downstream).block();
+        filter.filter(exchange(MockServerHttpRequest.options("/api/activities"), "u1"), this::downstream).block();
+        get("u1");
+
+        assertThat(downstreamCalls).hasValue(3);
+    }
+
+    @Test
+    void readDuringWriteIsNotServedAfterIt() {
+        Sinks.Empty<Void> downstreamWrite = Sinks.empty();
+        Mono<Void> write = filter.filter(exchange(MockServerHttpRequest.post("/api/activities"), "u1"),
+                _ -> downstreamWrite.asMono());
+        write.subscribe();
+
+        // a read while the write is still in flight sees and caches the old list
+        assertThat(get("u1")).isEqualTo(body);
+        body = "[{\"id\":\"a1\"},{\"id\":\"a2\"}]";
+        downstreamWrite.tryEmitEmpty();
+
+        assertThat(get("u1")).isEqualTo(body);
+        assertThat(downstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void etagMatchGets304() {
+        MockServerWebExchange first = exchange(MockServerHttpRequest.get("/api/activities/a1"), "u1");
+        filter.filter(first, this::downstream).block();
+        String etag = first.getResponse().getHeaders().getETag();
+
+        MockServerWebExchange second = exchange(
+                MockServerHttpRequest.get("/api/activities/a1").ifNoneMatch(etag), "u1");
+        filter.filter(second, this::downstream).block();
+
+        assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(downstreamCalls).hasValue(1);
+    }
+
+    private String get(String userId) {
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/activities"), userId);
+        filter.filter(exchange, this::downstream).block();
+        return exchange.getResponse().getBodyAsString().block();
+    }
+
+    private void post(String userId, Mono<Void> downstream) {
+        filter.filter(exchange(MockServerHttpRequest.post("/api/activities"), userId), _ -> downstream).block();
+    }
+
+    private Mono<Void> downstream(ServerWebExchange exchange) {
+        downstreamCalls.incrementAndGet();
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request, String userId) {
+        return MockServerWebExchange.from(request.header("X-User-Id", userId));
+    }
+}
@@ -0,0 +1,123 @@
+package com.fitness.gateway.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.security.Principal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class RateLimitFilterTest {
+
+    private final GatewayFilterChain chain = _ -> Mono.empty();
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void configure() {
+        RateLimitProperties.Rule rule = new RateLimitProperties.Rule();
+        rule.setId("track-activity");
+        rule.setMethod("POST");
+        rule.setPath("/api/activities/**");
+        rule.setCapacity(2);
+        rule.setRefillPerSecond(0.2);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRules(List.of(rule));
+
+        filter = new RateLimitFilter(properties, new SimpleMeterRegistry());
+        filter.init();
+    }
+
+    @Test
+    void rejectsOverLimitWithRetryAfter() {
+        assertThat(post("sub-1", "sub-1").getResponse().getStatusCode()).isNull();
+        assertThat(post("sub-1", "sub-1").getResponse().getStatusCode()).isNull();
+
+        ServerWebExchange rejected = post("sub-1", "sub-1");
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+    }
+
+    @Test
+    void rotatingTheUserHeaderDoesNotReset() {
+        post("sub-1", "a");
+        post("sub-1", "b");
+
+        assertThat(post("sub-1", "c").getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void spoofedUserHeaderDoesNotDrainSomeoneElse() {
+        post("attacker", "victim");
+        post("attacker", "victim");
+        post("attacker", "victim");
+
+        assertThat(post("victim", "victim").getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void unmatchedRoutesAreNotLimited() {
+        for (int i = 0; i < 5; i++) {
+            ServerWebExchange exchange = authenticated(MockServerHttpRequest.get("/api/activities"), "sub-1");
+            filter.filter(exchange, chain).block();
+            assertThat(exchange.getResponse().getStatusCode()).isNull();
+        }
+    }
+
+    @Test
+    void zeroRefillFailsAtBindTime() {
+        new ApplicationContextRunner()
+                .withUserConfiguration(PropertiesConfig.class)
+                .withPropertyValues(
+                        "gateway.rate-limit.rules[0].id=broken",
+                        "gateway.rate-limit.rules[0].path=/api/**",
+                        "gateway.rate-limit.rules[0].capacity=0",
+                        "gateway.rate-limit.rules[0].refill-per-second=0")
+                .run(context -> assertThat(context).hasFailed()
+                        .getFailure().rootCause().hasMessageContaining("refillPerSecond")
+                        .hasMessageContaining("capacity"));
+    }
+
+    @Test
+    void validRulesBind() {
+        new ApplicationContextRunner()
+                .withUserConfiguration(PropertiesConfig.class)
+                .withPropertyValues(
+                        "gateway.rate-limit.rules[0].id=reads",
+                        "gateway.rate-limit.rules[0].path=/api/**",
+                        "gateway.rate-limit.rules[0].capacity=100",
+                        "gateway.rate-limit.rules[0].refill-per-second=20")
+                .run(context -> assertThat(context.getBean(RateLimitProperties.class).getRules()).hasSize(1));
+    }
+
+    private ServerWebExchange post(String subject, String userIdHeader) {
+        ServerWebExchange exchange = authenticated(
+                MockServerHttpRequest.post("/api/activities").header("X-User-Id", userIdHeader), subject);
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private static ServerWebExchange authenticated(MockServerHttpRequest.BaseBuilder<?> request, String subject) {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject(subject).build();
+        return MockServerWebExchange.from(request).mutate()
+                .principal(Mono.<Principal>just(new JwtAuthenticationToken(jwt)))
+                .build();
+    }
+
+    @EnableConfigurationProperties(RateLimitProperties.class)
+    static class PropertiesConfig {
+    }
+}
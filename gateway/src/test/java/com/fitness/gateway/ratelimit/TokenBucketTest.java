@@ -0,0 +1,77 @@
+package com.fitness.gateway.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+    // 10 tokens, one more every 100ms
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long TOLERANCE = INTERVAL * 9;
+
+    @Test
+    void allowsABurstOfCapacityThenRejects() {
+        TokenBucket bucket = new TokenBucket(0);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(bucket.tryAcquire(0, INTERVAL, TOLERANCE)).isZero();
+        }
+        assertThat(bucket.tryAcquire(0, INTERVAL, TOLERANCE)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket(0);
+        for (int i = 0; i < 10; i++) {
+            bucket.tryAcquire(0, INTERVAL, TOLERANCE);
+        }
+
+        assertThat(bucket.tryAcquire(INTERVAL / 2, INTERVAL, TOLERANCE)).isEqualTo(INTERVAL / 2);
+        assertThat(bucket.tryAcquire(INTERVAL, INTERVAL, TOLERANCE)).isZero();
+        assertThat(bucket.tryAcquire(INTERVAL, INTERVAL, TOLERANCE)).isPositive();
+    }
+
+    @Test
+    void idleTimeDoesNotGrowTheBurstBeyondCapacity() {
+        TokenBucket bucket = new TokenBucket(0);
+        long later = INTERVAL * 1_000;
+
+        int allowed = 0;
+        while (bucket.tryAcquire(later, INTERVAL, TOLERANCE) == 0) {
+            allowed++;
+        }
+        assertThat(allowed).isEqualTo(10);
+    }
+
+    @Test
+    void capacityOfOneMeansNoBurst() {
+        TokenBucket bucket = new TokenBucket(0);
+
+        assertThat(bucket.tryAcquire(0, INTERVAL, 0)).isZero();
+        assertThat(bucket.tryAcquire(0, INTERVAL, 0)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(0);
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1_000; i++) {
+            executor.execute(() -> {
+                if (bucket.tryAcquire(0, INTERVAL, TOLERANCE) == 0) {
+                    allowed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(allowed).hasValue(10);
+    }
+}
@@ -0,0 +1,119 @@
+package com.fitness.gateway.user;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import reactor.core.publisher.Mono;
+
+class UserRegistrationQueueTest {
+
+    private final UserService userService = mock(UserService.class);
+    private final Cache<String, Boolean> knownUserCache = Caffeine.newBuilder().build();
+    private final UserRegistrationQueue queue = new UserRegistrationQueue(userService, knownUserCache);
+
+    @BeforeEach
+    void start() {
+        ReflectionTestUtils.setField(queue, "queueCapacity", 16);
+        ReflectionTestUtils.setField(queue, "batchSize", 10);
+        ReflectionTestUtils.setField(queue, "batchWindow", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(queue, "lookupConcurrency", 4);
+        ReflectionTestUtils.setField(queue, "maxRetries", 2);
+        ReflectionTestUtils.setField(queue, "retryBackoff", Duration.ofMillis(10));
+        queue.start();
+    }
+
+    @AfterEach
+    void stop() {
+        queue.stop();
+    }
+
+    @Test
+    void existingUserIsOnlyLookedUp() {
+        when(userService.validateUser("kc-1")).thenReturn(Mono.just(true));
+
+        queue.enqueue(request("kc-1", "one@example.com"));
+
+        verify(userService, timeout(1000)).validateUser("kc-1");
+        awaitKnown("kc-1");
+        verify(userService, never()).registerUsers(anyList());
+    }
+
+    @Test
+    void missingUserIsRegistered() {
+        when(userService.validateUser("kc-2")).thenReturn(Mono.just(false));
+        when(userService.registerUsers(anyList())).thenReturn(Mono.just(List.of(response("kc-2", "two@example.com"))));
+
+        queue.enqueue(request("kc-2", "two@example.com"));
+
+        verify(userService, timeout(1000)).registerUsers(List.of(request("kc-2", "two@example.com")));
+        awaitKnown("kc-2");
+    }
+
+    @Test
+    void onlyUsersMissingFromTheResponseAreRetried() {
+        when(userService.validateUser(anyString())).thenReturn(Mono.just(false));
+        RegisterRequest first = request("kc-3", "three@example.com");
+        RegisterRequest second = request("kc-4", "four@example.com");
+        when(userService.registerUsers(anyList()))
+                .thenReturn(Mono.just(List.of(response("kc-3", "three@example.com"))))
+                .thenReturn(Mono.just(List.of(response("kc-4", "four@example.com"))));
+
+        queue.enqueue(first);
+        queue.enqueue(second);
+
+        verify(userService, timeout(1000)).registerUsers(List.of(second));
+        awaitKnown("kc-3");
+        awaitKnown("kc-4");
+    }
+
+    @Test
+    void userRegisteredUnderTheSameEmailIsNotMarkedKnown() {
+        when(userService.validateUser("kc-5")).thenReturn(Mono.just(false));
+        when(userService.registerUsers(anyList()))
+                .thenReturn(Mono.just(List.of(response("kc-old", "five@example.com"))));
+
+        queue.enqueue(request("kc-5", "five@example.com"));
+
+        // the conflict is not retried either, the same user would come back
+        verify(userService, after(200).times(1)).registerUsers(anyList());
+        assertThat(knownUserCache.getIfPresent("kc-5")).isNull();
+        assertThat(knownUserCache.getIfPresent("kc-old")).isNull();
+    }
+
+    private void awaitKnown(String keycloakId) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (knownUserCache.getIfPresent(keycloakId) == null && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(knownUserCache.getIfPresent(keycloakId)).isTrue();
+    }
+
+    private static RegisterRequest request(String keycloakId, String email) {
+        return new RegisterRequest(email, "defaultPassword123", keycloakId, "First", "Last");
+    }
+
+    private static UserResponse response(String keycloakId, String email) {
+        UserResponse response = new UserResponse();
+        response.setKeycloakId(keycloakId);
+        response.setEmail(email);
+        return response;
+    }
+}
@@ -1,5 +1,7 @@
 package com.fitness.userservice.controller;
 
+import java.util.List;
+
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -32,6 +34,11 @@ public class UserController {
         return ResponseEntity.ok(userService.register(request));
     }
 
+    @PostMapping("/register/batch")
+    public ResponseEntity<List<UserResponse>> registerAll(@RequestBody List<RegisterRequest> requests) {
+        return ResponseEntity.ok(userService.registerAll(requests));
+    }
+
     @GetMapping("/{id}/validate")
     public ResponseEntity<Boolean> validateUser(@PathVariable String id) {
         return ResponseEntity.ok(userService.existByUserId(id));
@@ -14,4 +14,6 @@ public interface UserRepository extends JpaRepository<User, String> {
 
     User findByEmail(String email);
 
+    User findByKeycloakId(String keycloakId);
+
 }
@@ -1,9 +1,16 @@
 package com.fitness.userservice.service;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.fitness.userservice.dto.RegisterRequest;
+import com.fitness.userservice.dto.UserRegisteredEvent;
 import com.fitness.userservice.dto.UserResponse;
 import com.fitness.userservice.model.User;
 import com.fitness.userservice.repository.UserRepository;
@@ -17,20 +24,24 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Value("${rabbitmq.exchange.name}")
+    private String exchange;
+
+    @Value("${rabbitmq.user-registered.routing-key}")
+    private String userRegisteredRoutingKey;
+
     public UserResponse register(RegisterRequest request) {
 
+        // the gateway may send the same Keycloak user more than once
+        if (request.getKeycloakId() != null && userRepository.existsByKeycloakId(request.getKeycloakId())) {
+            return toResponse(userRepository.findByKeycloakId(request.getKeycloakId()));
+        }
+
         if (userRepository.existsByEmail(request.getEmail())) {
-            User existingUser = userRepository.findByEmail(request.getEmail());
-            UserResponse userResponse = new UserResponse();
-            userResponse.setId(existingUser.getId());
-            userResponse.setKeycloakId(existingUser.getKeycloakId());
-            userResponse.setEmail(existingUser.getEmail());
-            userResponse.setPassword(existingUser.getPassword());
-            userResponse.setFirstName(existingUser.getFirstName());
-            userResponse.setLastName(existingUser.getLastName());
-            userResponse.setCreatedAt(existingUser.getCreatedAt());
-            userResponse.setUpdatedAt(existingUser.getUpdatedAt());
-            return userResponse;
+            return toResponse(userRepository.findByEmail(request.getEmail()));
         }
 
         User user = new User();
@@ -41,19 +52,46 @@ public class UserService {
         user.setLastName(request.getLastName());
 
         User savedUser = userRepository.save(user);
-        UserResponse userResponse = new UserResponse();
-        userResponse.setId(savedUser.getId());
-        userResponse.setKeycloakId(savedUser.getKeycloakId());
-        userResponse.setEmail(savedUser.getEmail());
-        userResponse.setPassword(savedUser.getPassword());
-        userResponse.setFirstName(savedUser.getFirstName());
-        userResponse.setLastName(savedUser.getLastName());
-        userResponse.setCreatedAt(savedUser.getCreatedAt());
-        userResponse.setUpdatedAt(savedUser.getUpdatedAt());
+        publishUserRegistered(savedUser);
+        return toResponse(savedUser);
+    }
 
+    private UserResponse toResponse(User user) {
+        UserResponse userResponse = new UserResponse();
+        userResponse.setId(user.getId());
+        userResponse.setKeycloakId(user.getKeycloakId());
+        userResponse.setEmail(user.getEmail());
+        userResponse.setPassword(user.getPassword());
+        userResponse.setFirstName(user.getFirstName());
+        userResponse.setLastName(user.getLastName());
+        userResponse.setCreatedAt(user.getCreatedAt());
+        userResponse.setUpdatedAt(user.getUpdatedAt());
         return userResponse;
     }
 
+    // lets other services warm or correct their cached view of which users exist
+    private void publishUserRegistered(User user) {
+        try {
+            rabbitTemplate.convertAndSend(exchange, userRegisteredRoutingKey,
+                    new UserRegisteredEvent(user.getKeycloakId(), user.getEmail()));
+        } catch (AmqpException e) {
+            log.error("Failed to publish user registered event for {}", user.getKeycloakId(), e);
+        }
+    }
+
+    // each user is registered on its own, a bad entry is left out of the response instead of failing the batch
+    public List<UserResponse> registerAll(List<RegisterRequest> requests) {
+        List<UserResponse> registered = new ArrayList<>(requests.size());
+        for (RegisterRequest request : requests) {
+            try {
+                registered.add(register(request));
+            } catch (RuntimeException e) {
+                log.warn("Failed to register user {}", request.getKeycloakId(), e);
+            }
+        }
+        return registered;
+    }
+
     public UserResponse getUserProfile(String id) {
         User user = userRepository.findById(id).orElseThrow(() -> new RuntimeException("User not found"));
 